@@ -0,0 +1,37 @@
+package cycling;
+
+import java.time.Duration;
+
+/**
+ * Sub-second finishing-group rule for adjusted elapsed times.
+ *
+ * <p>Works on elapsed times already sorted into finish order. A rider who
+ * finishes less than one second behind the rider directly ahead joins that
+ * rider's group and is given the group's leading time; the rule chains, so a
+ * long line of riders each within a second of the next all share one time.
+ * Time trials are not grouped.</p>
+ */
+final class AdjustedTimes {
+    private static final long ONE_SECOND = Duration.ofSeconds(1).toNanos();
+
+    private AdjustedTimes() {
+    }
+
+    /**
+     * Writes the adjusted time of each of the first {@code length} sorted
+     * elapsed times into {@code target}. No objects are allocated, and
+     * {@code target} may be {@code sortedElapsed} itself.
+     */
+    static void group(long[] sortedElapsed, int length, boolean timeTrial, long[] target) {
+        long previousActual = 0L;
+        long groupTime = 0L;
+        for (int position = 0; position < length; position++) {
+            long actual = sortedElapsed[position];
+            if (timeTrial || position == 0 || actual - previousActual >= ONE_SECOND) {
+                groupTime = actual;
+            }
+            target[position] = groupTime;
+            previousActual = actual;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package cycling;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Big-endian writer over a heap buffer that doubles when full.
+ *
+ * <p>Strings are written as a UTF-8 byte count followed by the bytes, with a
+ * count of {@code -1} for {@code null}; nullable values are preceded by a
+ * presence byte. {@link SnapshotFormat} reads them back, including the
+ * variable-length integers of packed result times.</p>
+ */
+final class BinaryWriter {
+    private ByteBuffer buffer;
+
+    BinaryWriter(int initialCapacity) {
+        buffer = ByteBuffer.allocate(initialCapacity);
+    }
+
+    int position() {
+        return buffer.position();
+    }
+
+    /**
+     * Discards everything written so far, keeping the capacity.
+     */
+    void clear() {
+        buffer.clear();
+    }
+
+    /**
+     * Discards everything written after {@code position}.
+     */
+    void truncate(int position) {
+        buffer.position(position);
+    }
+
+    /**
+     * Returns a read-only view of the given written bytes.
+     */
+    ByteBuffer view(int offset, int length) {
+        return buffer.asReadOnlyBuffer().position(offset).limit(offset + length);
+    }
+
+    /**
+     * Returns a view of everything written so far, ready to be drained.
+     */
+    ByteBuffer written() {
+        return buffer.duplicate().flip();
+    }
+
+    void putByte(int value) {
+        ensure(1);
+        buffer.put((byte) value);
+    }
+
+    void putShort(short value) {
+        ensure(Short.BYTES);
+        buffer.putShort(value);
+    }
+
+    void putInt(int value) {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    /**
+     * Overwrites an {@code int} written earlier, such as a length placeholder.
+     */
+    void putInt(int index, int value) {
+        buffer.putInt(index, value);
+    }
+
+    void putLong(long value) {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    /**
+     * Writes an unsigned variable-length integer, seven bits per byte with
+     * the lowest bits first and the top bit set on every byte but the last.
+     */
+    void putVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    void putDouble(double value) {
+        ensure(Double.BYTES);
+        buffer.putDouble(value);
+    }
+
+    void putNullableDouble(Double value) {
+        putByte(value == null ? 0 : 1);
+        if (value != null) {
+            putDouble(value);
+        }
+    }
+
+    void putString(String value) {
+        if (value == null) {
+            putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+        ensure(bytes.length);
+        buffer.put(bytes);
+    }
+
+    void putDateTime(LocalDateTime value) {
+        putByte(value == null ? 0 : 1);
+        if (value != null) {
+            putLong(value.toLocalDate().toEpochDay());
+            putLong(value.toLocalTime().toNanoOfDay());
+        }
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+            buffer = ByteBuffer.allocate(capacity).put(buffer.flip());
+        }
+    }
+}
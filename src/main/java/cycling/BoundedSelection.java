@@ -0,0 +1,86 @@
+package cycling;
+
+/**
+ * Partial ranking that selects only the best {@code k} rows of a field.
+ *
+ * <p>Rows are ordered ascending by a primitive time key and then by a rider
+ * ID tie-breaker, matching the full rankings. A bounded max-heap of the best
+ * rows seen so far makes the selection {@code O(n log k)} instead of a full
+ * {@code O(n log n)} sort, which matters because points are only ever awarded
+ * to the first few places.</p>
+ */
+final class BoundedSelection {
+    private BoundedSelection() {
+    }
+
+    /**
+     * Returns the indices of the {@code k} best rows in ranked order.
+     *
+     * @param keys     the primary ranking key of each row; smaller is better
+     * @param riderIds the tie-breaking rider ID of each row
+     * @param k        the maximum number of rows to select
+     */
+    static int[] top(long[] keys, int[] riderIds, int k) {
+        int size = Math.min(k, keys.length);
+        int[] heap = new int[size];
+        int heapSize = 0;
+        for (int row = 0; row < keys.length && size > 0; row++) {
+            if (heapSize < size) {
+                heap[heapSize] = row;
+                siftUp(heap, heapSize++, keys, riderIds);
+            } else if (before(row, heap[0], keys, riderIds)) {
+                heap[0] = row;
+                siftDown(heap, heapSize, keys, riderIds);
+            }
+        }
+
+        // Popping the worst row into the tail leaves the heap in ranked order.
+        for (int end = heapSize - 1; end > 0; end--) {
+            int worst = heap[0];
+            heap[0] = heap[end];
+            heap[end] = worst;
+            siftDown(heap, end, keys, riderIds);
+        }
+        return heap;
+    }
+
+    private static void siftUp(int[] heap, int index, long[] keys, int[] riderIds) {
+        int row = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(heap[parent], row, keys, riderIds)) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = row;
+    }
+
+    private static void siftDown(int[] heap, int size, long[] keys, int[] riderIds) {
+        int index = 0;
+        int row = heap[0];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(heap[child], heap[child + 1], keys, riderIds)) {
+                child++;
+            }
+            if (!before(row, heap[child], keys, riderIds)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = row;
+    }
+
+    private static boolean before(int first, int second, long[] keys, int[] riderIds) {
+        if (keys[first] != keys[second]) {
+            return keys[first] < keys[second];
+        }
+        return riderIds[first] < riderIds[second];
+    }
+}
@@ -0,0 +1,84 @@
+package cycling;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records which races and teams changed since the last full snapshot, so
+ * that a delta snapshot need only rewrite those.
+ *
+ * <p>A change to a race's stages or checkpoints marks the race, and a change
+ * to a team's riders marks the team. Result changes are not recorded here:
+ * each stage compares its results version with the one saved in the base,
+ * which keeps result registration free of extra bookkeeping. The sets are
+ * concurrent because teams and riders may be created in parallel.</p>
+ */
+final class ChangeTracker {
+    private final Set<Integer> changedRaces = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> changedTeams = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> removedRaces = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> removedTeams = ConcurrentHashMap.newKeySet();
+    private long baseSnapshotId;
+
+    /**
+     * Returns the identifier of the base snapshot, or {@code 0} if there is
+     * none to save a delta against.
+     */
+    long getBaseSnapshotId() {
+        return baseSnapshotId;
+    }
+
+    /**
+     * Forgets every change; later changes are relative to the given base.
+     */
+    void startBase(long snapshotId) {
+        changedRaces.clear();
+        changedTeams.clear();
+        removedRaces.clear();
+        removedTeams.clear();
+        baseSnapshotId = snapshotId;
+    }
+
+    /**
+     * Replaces the contents with those of another tracker.
+     */
+    void restore(ChangeTracker other) {
+        startBase(other.baseSnapshotId);
+        changedRaces.addAll(other.changedRaces);
+        changedTeams.addAll(other.changedTeams);
+        removedRaces.addAll(other.removedRaces);
+        removedTeams.addAll(other.removedTeams);
+    }
+
+    void raceChanged(int raceId) {
+        changedRaces.add(raceId);
+    }
+
+    void teamChanged(int teamId) {
+        changedTeams.add(teamId);
+    }
+
+    void raceRemoved(int raceId) {
+        removedRaces.add(raceId);
+    }
+
+    void teamRemoved(int teamId) {
+        removedTeams.add(teamId);
+    }
+
+    boolean isRaceChanged(int raceId) {
+        return changedRaces.contains(raceId);
+    }
+
+    Set<Integer> getChangedTeams() {
+        return changedTeams;
+    }
+
+    Set<Integer> getRemovedRaces() {
+        return removedRaces;
+    }
+
+    Set<Integer> getRemovedTeams() {
+        return removedTeams;
+    }
+}
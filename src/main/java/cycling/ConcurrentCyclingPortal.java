@@ -0,0 +1,817 @@
+package cycling;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thread-safe implementation of the staged cycling race management API.
+ *
+ * <p>Every call is delegated to a private {@link CyclingPortalImpl}. A
+ * portal-wide read/write lock guards its structure: operations that remove or
+ * reconfigure entities, or add races, stages and checkpoints, take the write
+ * lock and so keep the validation, cascade and all-or-nothing behaviour of
+ * the delegate; saving and loading are exclusive too. All other calls share
+ * the read lock. Teams and riders are created under the read lock, since the
+ * delegate's registries allocate IDs atomically and accept concurrent
+ * insertions; the delegate journals each creation before the new entity
+ * becomes visible, so records that depend on it always follow it.</p>
+ *
+ * <p>Results are additionally guarded by a fixed array of striped read/write
+ * locks selected by stage ID. Registering or deleting a result locks only its
+ * stage's stripe exclusively, so timing feeds for different stages proceed in
+ * parallel. Stage queries share that stripe; race queries share the stripes
+ * of every stage they read, always acquired in ascending stripe order after
+ * the portal lock so that no two threads can deadlock. Taking a
+ * {@link #snapshot()} read-locks every stripe; the snapshot itself is then
+ * read without any lock.</p>
+ *
+ * <p>Optimistic, lock-free reads are deliberately not used: the delegate's
+ * indexes may be mid-resize while a writer runs, and a torn read could fail
+ * rather than simply be retried.</p>
+ */
+public class ConcurrentCyclingPortal implements CyclingPortal {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /** Default number of stage lock stripes. */
+    public static final int DEFAULT_STAGE_LOCK_STRIPES = 64;
+
+    private final CyclingPortalImpl delegate = new CyclingPortalImpl();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+    private final ReentrantReadWriteLock[] stageStripes;
+
+    /**
+     * Creates an empty portal with {@link #DEFAULT_STAGE_LOCK_STRIPES} stage
+     * lock stripes.
+     */
+    public ConcurrentCyclingPortal() {
+        this(DEFAULT_STAGE_LOCK_STRIPES);
+    }
+
+    /**
+     * Creates an empty portal with the given number of stage lock stripes. One
+     * stripe serialises all result registration, as a single lock would.
+     *
+     * @param stageLockStripes the number of stage lock stripes
+     * @throws IllegalArgumentException if {@code stageLockStripes} is not
+     *                                  positive
+     */
+    public ConcurrentCyclingPortal(int stageLockStripes) {
+        if (stageLockStripes < 1) {
+            throw new IllegalArgumentException("At least one stage lock stripe is required");
+        }
+        stageStripes = new ReentrantReadWriteLock[stageLockStripes];
+        for (int stripe = 0; stripe < stageLockStripes; stripe++) {
+            stageStripes[stripe] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * See {@link CyclingPortalImpl#setParallelEvaluation(boolean)}. The worker
+     * threads only read stages whose locks the calling thread already holds.
+     *
+     * @param parallelEvaluation {@code true} to evaluate stages in parallel
+     */
+    public void setParallelEvaluation(boolean parallelEvaluation) {
+        delegate.setParallelEvaluation(parallelEvaluation);
+    }
+
+    @Override
+    public int[] getRaceIds() {
+        readLock.lock();
+        try {
+            return delegate.getRaceIds();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int createRace(String name, String description)
+            throws IllegalNameException, InvalidNameException {
+        writeLock.lock();
+        try {
+            return delegate.createRace(name, description);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public String viewRaceDetails(int raceId) throws IDNotRecognisedException {
+        readLock.lock();
+        try {
+            return delegate.viewRaceDetails(raceId);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeRaceById(int raceId) throws IDNotRecognisedException {
+        writeLock.lock();
+        try {
+            delegate.removeRaceById(raceId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int getNumberOfStages(int raceId) throws IDNotRecognisedException {
+        readLock.lock();
+        try {
+            return delegate.getNumberOfStages(raceId);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int addStageToRace(int raceId, String stageName, String description,
+            double length, LocalDateTime startTime, StageType type)
+            throws IDNotRecognisedException, IllegalNameException,
+            InvalidNameException, InvalidLengthException {
+        writeLock.lock();
+        try {
+            return delegate.addStageToRace(
+                    raceId, stageName, description, length, startTime, type);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int[] getRaceStages(int raceId) throws IDNotRecognisedException {
+        readLock.lock();
+        try {
+            return delegate.getRaceStages(raceId);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public double getStageLength(int stageId) throws IDNotRecognisedException {
+        readLock.lock();
+        try {
+            return delegate.getStageLength(stageId);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeStageById(int stageId) throws IDNotRecognisedException {
+        writeLock.lock();
+        try {
+            delegate.removeStageById(stageId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int addCategorizedClimbToStage(int stageId, Double location,
+            CheckpointType type, Double averageGradient, Double length)
+            throws IDNotRecognisedException, InvalidLocationException,
+            InvalidStageStateException, InvalidStageTypeException {
+        writeLock.lock();
+        try {
+            return delegate.addCategorizedClimbToStage(
+                    stageId, location, type, averageGradient, length);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int addIntermediateSprintToStage(int stageId, double location)
+            throws IDNotRecognisedException, InvalidLocationException,
+            InvalidStageStateException, InvalidStageTypeException {
+        writeLock.lock();
+        try {
+            return delegate.addIntermediateSprintToStage(stageId, location);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeCheckpoint(int checkpointId)
+            throws IDNotRecognisedException, InvalidStageStateException {
+        writeLock.lock();
+        try {
+            delegate.removeCheckpoint(checkpointId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void concludeStagePreparation(int stageId)
+            throws IDNotRecognisedException, InvalidStageStateException {
+        writeLock.lock();
+        try {
+            delegate.concludeStagePreparation(stageId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int[] getStageCheckpoints(int stageId) throws IDNotRecognisedException {
+        readLock.lock();
+        try {
+            return delegate.getStageCheckpoints(stageId);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int createTeam(String name, String description)
+            throws IllegalNameException, InvalidNameException {
+        readLock.lock();
+        try {
+            return delegate.createTeam(name, description);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeTeam(int teamId) throws IDNotRecognisedException {
+        writeLock.lock();
+        try {
+            delegate.removeTeam(teamId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int[] getTeams() {
+        readLock.lock();
+        try {
+            return delegate.getTeams();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int[] getTeamRiders(int teamId) throws IDNotRecognisedException {
+        readLock.lock();
+        try {
+            return delegate.getTeamRiders(teamId);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int createRider(int teamID, String name, int yearOfBirth)
+            throws IDNotRecognisedException, IllegalArgumentException {
+        readLock.lock();
+        try {
+            return delegate.createRider(teamID, name, yearOfBirth);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeRider(int riderId) throws IDNotRecognisedException {
+        writeLock.lock();
+        try {
+            delegate.removeRider(riderId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void registerRiderResultsInStage(int stageId, int riderId,
+            LocalTime... checkpointTimes)
+            throws IDNotRecognisedException, DuplicatedResultException,
+            InvalidCheckpointTimesException, InvalidStageStateException {
+        Lock stageLock = stageWriteLock(stageId);
+        readLock.lock();
+        stageLock.lock();
+        try {
+            delegate.registerRiderResultsInStage(stageId, riderId, checkpointTimes);
+        } finally {
+            stageLock.unlock();
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void registerStageResultsBatch(int stageId, int[] riderIds, LocalTime[][] times)
+            throws IDNotRecognisedException, DuplicatedResultException,
+            InvalidCheckpointTimesException, InvalidStageStateException {
+        Lock stageLock = stageWriteLock(stageId);
+        readLock.lock();
+        stageLock.lock();
+        try {
+            delegate.registerStageResultsBatch(stageId, riderIds, times);
+        } finally {
+            stageLock.unlock();
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public LocalTime[] getRiderResultsInStage(int stageId, int riderId)
+            throws IDNotRecognisedException {
+        Lock stageLock = stageReadLock(stageId);
+        readLock.lock();
+        stageLock.lock();
+        try {
+            return delegate.getRiderResultsInStage(stageId, riderId);
+        } finally {
+            stageLock.unlock();
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public LocalTime getRiderAdjustedElapsedTimeInStage(int stageId, int riderId)
+            throws IDNotRecognisedException {
+        Lock stageLock = stageReadLock(stageId);
+        readLock.lock();
+        stageLock.lock();
+        try {
+            return delegate.getRiderAdjustedElapsedTimeInStage(stageId, riderId);
+        } finally {
+            stageLock.unlock();
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteRiderResultsInStage(int stageId, int riderId)
+            throws IDNotRecognisedException {
+        Lock stageLock = stageWriteLock(stageId);
+        readLock.lock();
+        stageLock.lock();
+        try {
+            delegate.deleteRiderResultsInStage(stageId, riderId);
+        } finally {
+            stageLock.unlock();
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int[] getRidersRankInStage(int stageId) throws IDNotRecognisedException {
+        Lock stageLock = stageReadLock(stageId);
+        readLock.lock();
+        stageLock.lock();
+        try {
+            return delegate.getRidersRankInStage(stageId);
+        } finally {
+            stageLock.unlock();
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public LocalTime[] getRankedAdjustedElapsedTimesInStage(int stageId)
+            throws IDNotRecognisedException {
+        Lock stageLock = stageReadLock(stageId);
+        readLock.lock();
+        stageLock.lock();
+        try {
+            return delegate.getRankedAdjustedElapsedTimesInStage(stageId);
+        } finally {
+            stageLock.unlock();
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int[] getRidersPointsInStage(int stageId) throws IDNotRecognisedException {
+        Lock stageLock = stageReadLock(stageId);
+        readLock.lock();
+        stageLock.lock();
+        try {
+            return delegate.getRidersPointsInStage(stageId);
+        } finally {
+            stageLock.unlock();
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int[] getRidersMountainPointsInStage(int stageId)
+            throws IDNotRecognisedException {
+        Lock stageLock = stageReadLock(stageId);
+        readLock.lock();
+        stageLock.lock();
+        try {
+            return delegate.getRidersMountainPointsInStage(stageId);
+        } finally {
+            stageLock.unlock();
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void eraseCyclingPortal() {
+        writeLock.lock();
+        try {
+            delegate.eraseCyclingPortal();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void saveCyclingPortal(String filename) throws IOException {
+        // Exclusive, since teams and riders may otherwise be added mid-write.
+        writeLock.lock();
+        try {
+            delegate.saveCyclingPortal(filename);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void loadCyclingPortal(String filename) throws IOException, ClassNotFoundException {
+        writeLock.lock();
+        try {
+            delegate.loadCyclingPortal(filename);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * See {@link CyclingPortalImpl#saveCyclingPortalDelta(String)}.
+     *
+     * @param filename the location to save the delta to
+     * @throws IOException if the file cannot be written
+     */
+    public void saveCyclingPortalDelta(String filename) throws IOException {
+        writeLock.lock();
+        try {
+            delegate.saveCyclingPortalDelta(filename);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * See {@link CyclingPortalImpl#loadCyclingPortal(String, String)}.
+     *
+     * @param baseFilename  the complete snapshot
+     * @param deltaFilename a delta saved against {@code baseFilename}
+     * @throws IOException if either file cannot be read or they do not match
+     */
+    public void loadCyclingPortal(String baseFilename, String deltaFilename) throws IOException {
+        writeLock.lock();
+        try {
+            delegate.loadCyclingPortal(baseFilename, deltaFilename);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * See {@link CyclingPortalImpl#compactCyclingPortal(String, String)}.
+     *
+     * @param baseFilename  the base snapshot to replace
+     * @param deltaFilename the delta to delete
+     * @throws IOException if either file cannot be written or deleted
+     */
+    public void compactCyclingPortal(String baseFilename, String deltaFilename)
+            throws IOException {
+        writeLock.lock();
+        try {
+            delegate.compactCyclingPortal(baseFilename, deltaFilename);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * See {@link CyclingPortalImpl#loadCyclingPortalMapped(String)}. Deferred
+     * result times are decoded at most once even when several readers need
+     * them together.
+     *
+     * @param filename the location of the saved portal
+     * @throws IOException            if the file cannot be read or is not a
+     *                                saved portal
+     * @throws ClassNotFoundException if a legacy file refers to an unknown
+     *                                class
+     */
+    public void loadCyclingPortalMapped(String filename)
+            throws IOException, ClassNotFoundException {
+        writeLock.lock();
+        try {
+            delegate.loadCyclingPortalMapped(filename);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * See {@link CyclingPortalImpl#recoverCyclingPortal(String, String)}.
+     * Concurrent writers append to the journal without further locking.
+     *
+     * @param snapshotFile the snapshot the journal continues from
+     * @param journalFile  the journal to replay and append to
+     * @throws IOException            if either file cannot be read or a record
+     *                                cannot be replayed
+     * @throws ClassNotFoundException if a legacy snapshot refers to an unknown
+     *                                class
+     */
+    public void recoverCyclingPortal(String snapshotFile, String journalFile)
+            throws IOException, ClassNotFoundException {
+        writeLock.lock();
+        try {
+            delegate.recoverCyclingPortal(snapshotFile, journalFile);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * See {@link CyclingPortalImpl#syncJournal()}.
+     *
+     * @throws IOException if the journal could not be written
+     */
+    public void syncJournal() throws IOException {
+        delegate.syncJournal();
+    }
+
+    /**
+     * See {@link CyclingPortalImpl#closeJournal()}.
+     *
+     * @throws IOException if the journal could not be written
+     */
+    public void closeJournal() throws IOException {
+        writeLock.lock();
+        try {
+            delegate.closeJournal();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeRaceByName(String name) throws NameNotRecognisedException {
+        writeLock.lock();
+        try {
+            delegate.removeRaceByName(name);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int getRaceIdByName(String name) throws NameNotRecognisedException {
+        readLock.lock();
+        try {
+            return delegate.getRaceIdByName(name);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int getStageIdByName(String name) throws NameNotRecognisedException {
+        readLock.lock();
+        try {
+            return delegate.getStageIdByName(name);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int getTeamIdByName(String name) throws NameNotRecognisedException {
+        readLock.lock();
+        try {
+            return delegate.getTeamIdByName(name);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int[] getRidersGeneralClassificationRank(int raceId)
+            throws IDNotRecognisedException {
+        readLock.lock();
+        try {
+            Lock[] stageLocks = lockRaceStages(raceId);
+            try {
+                return delegate.getRidersGeneralClassificationRank(raceId);
+            } finally {
+                unlock(stageLocks);
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public LocalTime[] getGeneralClassificationTimesInRace(int raceId)
+            throws IDNotRecognisedException {
+        readLock.lock();
+        try {
+            Lock[] stageLocks = lockRaceStages(raceId);
+            try {
+                return delegate.getGeneralClassificationTimesInRace(raceId);
+            } finally {
+                unlock(stageLocks);
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int[] getRidersPointsInRace(int raceId) throws IDNotRecognisedException {
+        readLock.lock();
+        try {
+            Lock[] stageLocks = lockRaceStages(raceId);
+            try {
+                return delegate.getRidersPointsInRace(raceId);
+            } finally {
+                unlock(stageLocks);
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int[] getRidersMountainPointsInRace(int raceId)
+            throws IDNotRecognisedException {
+        readLock.lock();
+        try {
+            Lock[] stageLocks = lockRaceStages(raceId);
+            try {
+                return delegate.getRidersMountainPointsInRace(raceId);
+            } finally {
+                unlock(stageLocks);
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int[] getRidersPointClassificationRank(int raceId)
+            throws IDNotRecognisedException {
+        readLock.lock();
+        try {
+            Lock[] stageLocks = lockRaceStages(raceId);
+            try {
+                return delegate.getRidersPointClassificationRank(raceId);
+            } finally {
+                unlock(stageLocks);
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int[] getRidersMountainPointClassificationRank(int raceId)
+            throws IDNotRecognisedException {
+        readLock.lock();
+        try {
+            Lock[] stageLocks = lockRaceStages(raceId);
+            try {
+                return delegate.getRidersMountainPointClassificationRank(raceId);
+            } finally {
+                unlock(stageLocks);
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public RaceClassifications getRaceClassifications(int raceId)
+            throws IDNotRecognisedException {
+        readLock.lock();
+        try {
+            Lock[] stageLocks = lockRaceStages(raceId);
+            try {
+                return delegate.getRaceClassifications(raceId);
+            } finally {
+                unlock(stageLocks);
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int[] getTopRidersInStage(int stageId, int k) throws IDNotRecognisedException {
+        Lock stageLock = stageReadLock(stageId);
+        readLock.lock();
+        stageLock.lock();
+        try {
+            return delegate.getTopRidersInStage(stageId, k);
+        } finally {
+            stageLock.unlock();
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int[] getTopRidersInRace(int raceId, int k) throws IDNotRecognisedException {
+        readLock.lock();
+        try {
+            Lock[] stageLocks = lockRaceStages(raceId);
+            try {
+                return delegate.getTopRidersInRace(raceId, k);
+            } finally {
+                unlock(stageLocks);
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public CyclingPortal snapshot() {
+        // Result writers and cascades are excluded; concurrent onboarding is
+        // not, but the copy reads each team roster atomically.
+        readLock.lock();
+        try {
+            Lock[] stageLocks = lockAllStages();
+            try {
+                return delegate.snapshot();
+            } finally {
+                unlock(stageLocks);
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private Lock stageReadLock(int stageId) {
+        return stageStripes[stripeOf(stageId)].readLock();
+    }
+
+    private Lock stageWriteLock(int stageId) {
+        return stageStripes[stripeOf(stageId)].writeLock();
+    }
+
+    private int stripeOf(int stageId) {
+        return Math.floorMod(stageId, stageStripes.length);
+    }
+
+    /**
+     * Read-locks the stripes of every stage in a race. Must be called with the
+     * portal read lock held so that the race's stages cannot change.
+     */
+    private Lock[] lockRaceStages(int raceId) throws IDNotRecognisedException {
+        boolean[] needed = new boolean[stageStripes.length];
+        for (int stageId : delegate.getRaceStages(raceId)) {
+            needed[stripeOf(stageId)] = true;
+        }
+        return lockStripes(needed);
+    }
+
+    private Lock[] lockAllStages() {
+        boolean[] needed = new boolean[stageStripes.length];
+        Arrays.fill(needed, true);
+        return lockStripes(needed);
+    }
+
+    private Lock[] lockStripes(boolean[] needed) {
+        List<Lock> locks = new ArrayList<>();
+        for (int stripe = 0; stripe < needed.length; stripe++) {
+            if (needed[stripe]) {
+                Lock stripeLock = stageStripes[stripe].readLock();
+                stripeLock.lock();
+                locks.add(stripeLock);
+            }
+        }
+        return locks.toArray(new Lock[0]);
+    }
+
+    private static void unlock(Lock[] locks) {
+        for (int index = locks.length - 1; index >= 0; index--) {
+            locks[index].unlock();
+        }
+    }
+}
@@ -127,4 +127,128 @@ public interface CyclingPortal extends MiniCyclingPortal {
 	 */
 	int[] getRidersMountainPointClassificationRank(int raceId) throws IDNotRecognisedException;
 
+	/**
+	 * Get the ID of the race with the given name.
+	 * 
+	 * @param name The name of the race being queried.
+	 * @return The ID of the race.
+	 * @throws NameNotRecognisedException If the name does not match to any race in
+	 *                                    the system.
+	 */
+	int getRaceIdByName(String name) throws NameNotRecognisedException;
+
+	/**
+	 * Get the ID of the stage with the given name.
+	 * 
+	 * @param name The name of the stage being queried.
+	 * @return The ID of the stage.
+	 * @throws NameNotRecognisedException If the name does not match to any stage in
+	 *                                    the system.
+	 */
+	int getStageIdByName(String name) throws NameNotRecognisedException;
+
+	/**
+	 * Get the ID of the team with the given name.
+	 * 
+	 * @param name The name of the team being queried.
+	 * @return The ID of the team.
+	 * @throws NameNotRecognisedException If the name does not match to any team in
+	 *                                    the system.
+	 */
+	int getTeamIdByName(String name) throws NameNotRecognisedException;
+
+	/**
+	 * Get the general, points and mountain classifications of a race in one
+	 * call. The returned object is equivalent to calling each race-level
+	 * classification query of this interface, but the stages of the race are
+	 * only evaluated once.
+	 * <p>
+	 * The state of this CyclingPortal must be unchanged if any
+	 * exceptions are thrown.
+	 * 
+	 * @param raceId The ID of the race being queried.
+	 * @return An immutable snapshot of the race's classifications.
+	 * @throws IDNotRecognisedException If the ID does not match any race in the
+	 *                                  system.
+	 */
+	RaceClassifications getRaceClassifications(int raceId) throws IDNotRecognisedException;
+
+	/**
+	 * Get the leading riders of a stage, e.g. for a podium display.
+	 * <p>
+	 * The state of this CyclingPortal must be unchanged if any
+	 * exceptions are thrown.
+	 * 
+	 * @param stageId The ID of the stage being queried.
+	 * @param k       The maximum number of riders to return.
+	 * @return The first {@code k} riders' IDs of
+	 *         {@link #getRidersRankInStage(int)}, or all of them if fewer than
+	 *         {@code k} riders have results.
+	 * @throws IDNotRecognisedException If the ID does not match any stage in the
+	 *                                  system.
+	 * @throws IllegalArgumentException If {@code k} is negative.
+	 */
+	int[] getTopRidersInStage(int stageId, int k) throws IDNotRecognisedException;
+
+	/**
+	 * Get the leading riders of a race's general classification.
+	 * <p>
+	 * The state of this CyclingPortal must be unchanged if any
+	 * exceptions are thrown.
+	 * 
+	 * @param raceId The ID of the race being queried.
+	 * @param k      The maximum number of riders to return.
+	 * @return The first {@code k} riders' IDs of
+	 *         {@link #getRidersGeneralClassificationRank(int)}, or all of them if
+	 *         fewer than {@code k} riders have results.
+	 * @throws IDNotRecognisedException If the ID does not match any race in the
+	 *                                  system.
+	 * @throws IllegalArgumentException If {@code k} is negative.
+	 */
+	int[] getTopRidersInRace(int raceId, int k) throws IDNotRecognisedException;
+
+	/**
+	 * Record the times of many riders in a stage at once, e.g. from the
+	 * stage's timing file.
+	 * <p>
+	 * Each rider is validated as by
+	 * {@link #registerRiderResultsInStage(int, int, LocalTime...)}. Either all
+	 * results are recorded or, if any exception is thrown, none are, and the
+	 * state of this CyclingPortal is unchanged.
+	 * 
+	 * @param stageId  The ID of the stage the results refer to.
+	 * @param riderIds The IDs of the riders.
+	 * @param times    For each rider, at the same index, the times at which the
+	 *                 rider reached each checkpoint of the stage, including the
+	 *                 start time and the finish line.
+	 * @throws IDNotRecognisedException        If the ID does not match to any
+	 *                                         rider or stage in the system.
+	 * @throws DuplicatedResultException       If a rider already has a result
+	 *                                         for the stage or appears more than
+	 *                                         once in the batch.
+	 * @throws InvalidCheckpointTimesException If any rider's times do not have
+	 *                                         n+2 chronological entries, where n
+	 *                                         is the number of checkpoints in
+	 *                                         the stage.
+	 * @throws InvalidStageStateException      If the stage is not "waiting for
+	 *                                         results".
+	 * @throws IllegalArgumentException        If either array is null or the
+	 *                                         arrays differ in length.
+	 */
+	void registerStageResultsBatch(int stageId, int[] riderIds, LocalTime[][] times)
+			throws IDNotRecognisedException, DuplicatedResultException,
+			InvalidCheckpointTimesException, InvalidStageStateException;
+
+	/**
+	 * Get a read-only view of this CyclingPortal as it is now.
+	 * <p>
+	 * Later changes to this CyclingPortal are not visible through the view,
+	 * so all queries made on it agree with one another. Queries and
+	 * {@link #saveCyclingPortal(String)} work as normal; every other method of
+	 * the view throws {@link UnsupportedOperationException}.
+	 * 
+	 * @return An immutable point-in-time view of this CyclingPortal.
+	 */
+	CyclingPortal snapshot();
+
 }
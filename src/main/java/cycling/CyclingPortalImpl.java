@@ -1,31 +1,32 @@
 package cycling;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serial;
 import java.io.Serializable;
-import java.time.Duration;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.EnumMap;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * In-memory implementation of the staged cycling race management API.
  *
- * <p>The implementation is intentionally single-process and single-threaded.
- * It focuses on domain modelling, validation, ranking, scoring and persistence
+ * <p>The implementation is single-process and not thread-safe; wrap it in
+ * {@link ConcurrentCyclingPortal} to share one portal between threads. It
+ * focuses on domain modelling, validation, ranking, scoring and persistence
  * rather than providing a database, web API or user interface.</p>
  */
 public class CyclingPortalImpl implements CyclingPortal {
@@ -33,59 +34,57 @@ public class CyclingPortalImpl implements CyclingPortal {
     private static final long serialVersionUID = 1L;
 
     private static final String WAITING_FOR_RESULTS = "waiting for results";
-    private static final Duration ONE_SECOND = Duration.ofSeconds(1);
-
-    private static final Map<StageType, List<Integer>> FINISH_POINTS = new EnumMap<>(StageType.class);
-    private static final Map<CheckpointType, List<Integer>> MOUNTAIN_POINTS =
-            new EnumMap<>(CheckpointType.class);
-    private static final List<Integer> SPRINT_POINTS =
-            List.of(20, 17, 15, 13, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1);
-
-    static {
-        FINISH_POINTS.put(StageType.FLAT,
-                List.of(50, 30, 20, 18, 16, 14, 12, 10, 8, 7, 6, 5, 4, 3, 2));
-        FINISH_POINTS.put(StageType.MEDIUM_MOUNTAIN,
-                List.of(30, 25, 22, 19, 17, 15, 13, 11, 9, 7, 6, 5, 4, 3, 2));
-        FINISH_POINTS.put(StageType.HIGH_MOUNTAIN,
-                List.of(20, 17, 15, 13, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2));
-        FINISH_POINTS.put(StageType.TT,
-                List.of(20, 17, 15, 13, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2));
-
-        MOUNTAIN_POINTS.put(CheckpointType.C4, List.of(1));
-        MOUNTAIN_POINTS.put(CheckpointType.C3, List.of(2, 1));
-        MOUNTAIN_POINTS.put(CheckpointType.C2, List.of(5, 3, 2, 1));
-        MOUNTAIN_POINTS.put(CheckpointType.C1, List.of(10, 8, 6, 4, 2, 1));
-        MOUNTAIN_POINTS.put(CheckpointType.HC, List.of(20, 15, 12, 10, 8, 6, 4, 2));
-    }
-
-    private List<Race> races = new ArrayList<>();
-    private List<Stage> stages = new ArrayList<>();
-    private List<Checkpoint> checkpoints = new ArrayList<>();
-    private List<Team> teams = new ArrayList<>();
-    private List<Rider> riders = new ArrayList<>();
-    private List<Result> results = new ArrayList<>();
-
-    private int nextRaceId = 1;
-    private int nextStageId = 1;
-    private int nextCheckpointId = 1;
-    private int nextTeamId = 1;
-    private int nextRiderId = 1;
+
+    private final EntityRegistry<Race> races = new EntityRegistry<>();
+    private final EntityRegistry<Stage> stages = new EntityRegistry<>();
+    private final EntityRegistry<Checkpoint> checkpoints = new EntityRegistry<>();
+    private final EntityRegistry<Team> teams = new EntityRegistry<>();
+    private final EntityRegistry<Rider> riders = new EntityRegistry<>();
+    private final Map<String, Race> racesByName = new ConcurrentHashMap<>();
+    private final Map<String, Stage> stagesByName = new ConcurrentHashMap<>();
+    private final Map<String, Team> teamsByName = new ConcurrentHashMap<>();
+    private final ChangeTracker changes = new ChangeTracker();
+    private volatile boolean parallelEvaluation;
+    private transient volatile PortalJournal journal;
+    private transient Path journalSnapshot;
+    private transient long journalSequence;
+
+    /**
+     * Chooses whether race queries score their stages in parallel on the
+     * common fork-join pool. Stages are independent until their per-rider
+     * totals are merged, so long races with large fields benefit; the results
+     * are identical either way. Off by default.
+     *
+     * @param parallelEvaluation {@code true} to evaluate stages in parallel
+     */
+    public void setParallelEvaluation(boolean parallelEvaluation) {
+        this.parallelEvaluation = parallelEvaluation;
+    }
+
+    public boolean isParallelEvaluation() {
+        return parallelEvaluation;
+    }
 
     @Override
     public int[] getRaceIds() {
-        return races.stream().mapToInt(Race::getRaceID).toArray();
+        return races.ids();
     }
 
     @Override
     public int createRace(String name, String description)
             throws IllegalNameException, InvalidNameException {
         validateEntityName(name, "Race");
-        if (races.stream().anyMatch(race -> race.getRaceName().equals(name))) {
-            throw new IllegalNameException("A race named '" + name + "' already exists");
-        }
-
-        Race race = new Race(nextRaceId++, name, description);
-        races.add(race);
+        requireNameAvailable(racesByName, name, "race");
+
+        Race race = new Race(races.allocateId(), name, description);
+        claimName(racesByName, name, race, "race");
+        logClaimed(racesByName, name, PortalJournal.CREATE_RACE, record -> {
+            record.putInt(race.getRaceID());
+            record.putString(name);
+            record.putString(description);
+        });
+        races.register(race.getRaceID(), race);
+        changes.raceChanged(race.getRaceID());
         return race.getRaceID();
     }
 
@@ -120,13 +119,23 @@ public class CyclingPortalImpl implements CyclingPortal {
         if (type == null) {
             throw new IllegalArgumentException("Stage type cannot be null");
         }
-        if (stages.stream().anyMatch(stage -> stage.getStageName().equals(stageName))) {
-            throw new IllegalNameException("A stage named '" + stageName + "' already exists");
-        }
-
-        Stage stage = new Stage(nextStageId++, stageName, description, length, startTime, type, race);
-        stages.add(stage);
+        requireNameAvailable(stagesByName, stageName, "stage");
+
+        Stage stage = new Stage(
+                stages.allocateId(), stageName, description, length, startTime, type, race);
+        claimName(stagesByName, stageName, stage, "stage");
+        logClaimed(stagesByName, stageName, PortalJournal.ADD_STAGE, record -> {
+            record.putInt(stage.getStageID());
+            record.putInt(raceId);
+            record.putString(stageName);
+            record.putString(description);
+            record.putDouble(length);
+            record.putDateTime(startTime);
+            record.putByte(type.ordinal());
+        });
+        stages.register(stage.getStageID(), stage);
         race.addStage(stage);
+        changes.raceChanged(raceId);
         return stage.getStageID();
     }
 
@@ -184,8 +193,10 @@ public class CyclingPortalImpl implements CyclingPortal {
             throw new InvalidStageStateException("Cannot change checkpoints after stage preparation");
         }
 
+        log(PortalJournal.REMOVE_CHECKPOINT, record -> record.putInt(checkpointId));
         stage.removeCheckpoint(checkpoint);
-        checkpoints.remove(checkpoint);
+        checkpoints.remove(checkpointId);
+        changes.raceChanged(stage.getRace().getRaceID());
     }
 
     @Override
@@ -195,7 +206,9 @@ public class CyclingPortalImpl implements CyclingPortal {
         if (stage.isWaitingForResults()) {
             throw new InvalidStageStateException("The stage is already " + WAITING_FOR_RESULTS);
         }
+        log(PortalJournal.CONCLUDE_PREPARATION, record -> record.putInt(stageId));
         stage.concludePreparation();
+        changes.raceChanged(stage.getRace().getRaceID());
     }
 
     @Override
@@ -209,27 +222,38 @@ public class CyclingPortalImpl implements CyclingPortal {
     public int createTeam(String name, String description)
             throws IllegalNameException, InvalidNameException {
         validateEntityName(name, "Team");
-        if (teams.stream().anyMatch(team -> team.getTeamName().equals(name))) {
-            throw new IllegalNameException("A team named '" + name + "' already exists");
-        }
-
-        Team team = new Team(nextTeamId++, name, description);
-        teams.add(team);
+        requireNameAvailable(teamsByName, name, "team");
+
+        Team team = new Team(teams.allocateId(), name, description);
+        claimName(teamsByName, name, team, "team");
+        // Journaled before the team is visible, so that riders created in it
+        // by concurrent callers are journaled after it.
+        logClaimed(teamsByName, name, PortalJournal.CREATE_TEAM, record -> {
+            record.putInt(team.getTeamID());
+            record.putString(name);
+            record.putString(description);
+        });
+        teams.register(team.getTeamID(), team);
+        changes.teamChanged(team.getTeamID());
         return team.getTeamID();
     }
 
     @Override
     public void removeTeam(int teamId) throws IDNotRecognisedException {
         Team team = requireTeam(teamId);
-        for (Rider rider : new ArrayList<>(team.getRiders())) {
-            removeRider(rider);
+        log(PortalJournal.REMOVE_TEAM, record -> record.putInt(teamId));
+        for (Rider rider : team.getRiders()) {
+            detachResults(rider);
+            riders.remove(rider.getRiderID());
         }
-        teams.remove(team);
+        teams.remove(teamId);
+        teamsByName.remove(team.getTeamName());
+        changes.teamRemoved(teamId);
     }
 
     @Override
     public int[] getTeams() {
-        return teams.stream().mapToInt(Team::getTeamID).toArray();
+        return teams.ids();
     }
 
     @Override
@@ -248,9 +272,21 @@ public class CyclingPortalImpl implements CyclingPortal {
             throw new IllegalArgumentException("Rider year of birth cannot be before 1900");
         }
 
-        Rider rider = new Rider(nextRiderId++, name, yearOfBirth, team);
-        riders.add(rider);
-        team.addRider(rider);
+        Rider rider = new Rider(riders.allocateId(), name, yearOfBirth, team);
+        // Journaled before the rider is visible, so that concurrently
+        // registered results of the rider are journaled after it, and under
+        // the team's monitor, so that replay rebuilds the roster in order.
+        synchronized (team) {
+            log(PortalJournal.CREATE_RIDER, record -> {
+                record.putInt(rider.getRiderID());
+                record.putInt(teamID);
+                record.putString(name);
+                record.putInt(yearOfBirth);
+            });
+            riders.register(rider.getRiderID(), rider);
+            team.addRider(rider);
+        }
+        changes.teamChanged(teamID);
         return rider.getRiderID();
     }
 
@@ -271,11 +307,53 @@ public class CyclingPortalImpl implements CyclingPortal {
             throw new InvalidStageStateException("The stage is not waiting for results");
         }
         validateCheckpointTimes(stage, checkpointTimes);
-        if (findResult(stage, rider) != null) {
+        if (stage.hasResult(rider)) {
             throw new DuplicatedResultException("The rider already has a result for this stage");
         }
 
-        results.add(new Result(rider, stage, List.of(checkpointTimes)));
+        log(PortalJournal.REGISTER_RESULT, record -> {
+            record.putInt(stageId);
+            record.putInt(riderId);
+            putTimes(record, checkpointTimes);
+        });
+        stage.addResult(rider, checkpointTimes);
+    }
+
+    @Override
+    public void registerStageResultsBatch(int stageId, int[] riderIds, LocalTime[][] times)
+            throws IDNotRecognisedException, DuplicatedResultException,
+            InvalidCheckpointTimesException, InvalidStageStateException {
+        Stage stage = requireStage(stageId);
+        if (riderIds == null || times == null || riderIds.length != times.length) {
+            throw new IllegalArgumentException("Each rider ID needs exactly one array of times");
+        }
+        if (!stage.isWaitingForResults()) {
+            throw new InvalidStageStateException("The stage is not waiting for results");
+        }
+
+        // Validate every row before touching the stage so that a bad row
+        // leaves it unchanged.
+        Rider[] batch = new Rider[riderIds.length];
+        IntIntIndex batchRows = new IntIntIndex(riderIds.length);
+        for (int row = 0; row < riderIds.length; row++) {
+            batch[row] = requireRider(riderIds[row]);
+            validateCheckpointTimes(stage, times[row]);
+            if (stage.hasResult(batch[row]) || batchRows.containsKey(riderIds[row])) {
+                throw new DuplicatedResultException(
+                        "Rider " + riderIds[row] + " already has a result for this stage");
+            }
+            batchRows.put(riderIds[row], row);
+        }
+
+        log(PortalJournal.REGISTER_RESULTS, record -> {
+            record.putInt(stageId);
+            record.putInt(riderIds.length);
+            for (int row = 0; row < riderIds.length; row++) {
+                record.putInt(riderIds[row]);
+                putTimes(record, times[row]);
+            }
+        });
+        stage.addResults(batch, times);
     }
 
     @Override
@@ -283,17 +361,14 @@ public class CyclingPortalImpl implements CyclingPortal {
             throws IDNotRecognisedException {
         Stage stage = requireStage(stageId);
         Rider rider = requireRider(riderId);
-        Result result = findResult(stage, rider);
+        Result result = stage.getResult(rider);
         if (result == null) {
             return new LocalTime[0];
         }
 
         List<LocalTime> times = result.getCheckpointTimes();
-        LocalTime[] response = new LocalTime[times.size() + 1];
-        for (int index = 0; index < times.size(); index++) {
-            response[index] = times.get(index);
-        }
-        response[response.length - 1] = toLocalTime(elapsed(result));
+        LocalTime[] response = times.toArray(new LocalTime[times.size() + 1]);
+        response[response.length - 1] = toLocalTime(result.getElapsedNanos());
         return response;
     }
 
@@ -302,8 +377,8 @@ public class CyclingPortalImpl implements CyclingPortal {
             throws IDNotRecognisedException {
         Stage stage = requireStage(stageId);
         Rider rider = requireRider(riderId);
-        Duration adjusted = adjustedTimes(stage).get(rider);
-        return adjusted == null ? null : toLocalTime(adjusted);
+        int row = stage.getResultStore().rowOf(rider.getRiderID());
+        return row < 0 ? null : toLocalTime(stage.getScoring().getAdjustedTimeOfRow(row));
     }
 
     @Override
@@ -311,176 +386,410 @@ public class CyclingPortalImpl implements CyclingPortal {
             throws IDNotRecognisedException {
         Stage stage = requireStage(stageId);
         Rider rider = requireRider(riderId);
-        results.removeIf(result -> result.getStage() == stage && result.getRider() == rider);
+        if (stage.hasResult(rider)) {
+            log(PortalJournal.DELETE_RESULT, record -> {
+                record.putInt(stageId);
+                record.putInt(riderId);
+            });
+            stage.removeResult(rider);
+        }
     }
 
     @Override
     public int[] getRidersRankInStage(int stageId) throws IDNotRecognisedException {
-        Stage stage = requireStage(stageId);
-        return rankedResults(stage).stream()
-                .map(Result::getRider)
-                .mapToInt(Rider::getRiderID)
-                .toArray();
+        return requireStage(stageId).getScoring().getFinishOrder().clone();
     }
 
     @Override
     public LocalTime[] getRankedAdjustedElapsedTimesInStage(int stageId)
             throws IDNotRecognisedException {
-        Stage stage = requireStage(stageId);
-        Map<Rider, Duration> adjusted = adjustedTimes(stage);
-        return rankedResults(stage).stream()
-                .map(Result::getRider)
-                .map(adjusted::get)
-                .map(CyclingPortalImpl::toLocalTime)
-                .toArray(LocalTime[]::new);
+        long[] adjusted = requireStage(stageId).getScoring().getAdjustedTimes();
+        LocalTime[] times = new LocalTime[adjusted.length];
+        for (int index = 0; index < adjusted.length; index++) {
+            times[index] = toLocalTime(adjusted[index]);
+        }
+        return times;
     }
 
     @Override
     public int[] getRidersPointsInStage(int stageId) throws IDNotRecognisedException {
-        Stage stage = requireStage(stageId);
-        Map<Rider, Integer> pointsByRider = stagePoints(stage);
-        return rankedResults(stage).stream()
-                .map(Result::getRider)
-                .mapToInt(rider -> pointsByRider.getOrDefault(rider, 0))
-                .toArray();
+        return requireStage(stageId).getScoring().getPoints().clone();
     }
 
     @Override
     public int[] getRidersMountainPointsInStage(int stageId)
             throws IDNotRecognisedException {
-        Stage stage = requireStage(stageId);
-        Map<Rider, Integer> pointsByRider = stageMountainPoints(stage);
-        return rankedResults(stage).stream()
-                .map(Result::getRider)
-                .mapToInt(rider -> pointsByRider.getOrDefault(rider, 0))
-                .toArray();
+        return requireStage(stageId).getScoring().getMountainPoints().clone();
     }
 
     @Override
     public void eraseCyclingPortal() {
+        log(PortalJournal.ERASE, record -> { });
+        // Identifiers restart, so the delta must drop everything in the base.
+        for (int raceId : races.ids()) {
+            changes.raceRemoved(raceId);
+        }
+        for (int teamId : teams.ids()) {
+            changes.teamRemoved(teamId);
+        }
         races.clear();
         stages.clear();
         checkpoints.clear();
         teams.clear();
         riders.clear();
-        results.clear();
-        nextRaceId = 1;
-        nextStageId = 1;
-        nextCheckpointId = 1;
-        nextTeamId = 1;
-        nextRiderId = 1;
-    }
-
+        racesByName.clear();
+        stagesByName.clear();
+        teamsByName.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The saved file becomes the base that
+     * {@link #saveCyclingPortalDelta(String)} saves changes against. While a
+     * journal is open, the snapshot records how much of the journal it
+     * includes. Saving to the snapshot file the journal was recovered from
+     * also empties the journal.</p>
+     */
     @Override
     public void saveCyclingPortal(String filename) throws IOException {
         Objects.requireNonNull(filename, "filename");
-        PortalState state = new PortalState(
-                races, stages, checkpoints, teams, riders, results,
-                nextRaceId, nextStageId, nextCheckpointId, nextTeamId, nextRiderId);
-        try (ObjectOutputStream output = new ObjectOutputStream(new FileOutputStream(filename))) {
-            output.writeObject(state);
+        Path file = Path.of(filename);
+        startBase(SnapshotFormat.write(file, captureState()));
+        PortalJournal active = journal;
+        if (active != null && file.toAbsolutePath().normalize().equals(journalSnapshot)) {
+            active.truncate();
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if a journal is open
+     */
     @Override
     public void loadCyclingPortal(String filename) throws IOException, ClassNotFoundException {
         Objects.requireNonNull(filename, "filename");
-        PortalState state;
-        try (ObjectInputStream input = new ObjectInputStream(new FileInputStream(filename))) {
-            Object loaded = input.readObject();
-            if (!(loaded instanceof PortalState portalState)) {
-                throw new IOException("The file does not contain a cycling portal snapshot");
+        requireNoJournal();
+        PortalState state = SnapshotFormat.read(Path.of(filename));
+
+        // Assignment happens only after the complete snapshot has been read.
+        applyState(state);
+        startBase(state.snapshotId);
+    }
+
+    /**
+     * Saves only what changed since the base snapshot, which is the last
+     * complete snapshot this portal saved or loaded.
+     *
+     * <p>Races whose stages, checkpoints or results changed are written
+     * whole, as are teams whose riders changed, together with the identifiers
+     * of removed races and teams. Finished races and untouched teams are not
+     * written again, so a save during a live stage costs time in proportion
+     * to that stage's race. Each delta holds every change since the base, so
+     * it supersedes the previous one; load it with
+     * {@link #loadCyclingPortal(String, String)} and fold it into a new base
+     * with {@link #compactCyclingPortal(String, String)}.</p>
+     *
+     * @param filename the location to save the delta to
+     * @throws IOException           if the file cannot be written
+     * @throws IllegalStateException if there is no base snapshot, because
+     *                               none has been saved or loaded or the
+     *                               last one loaded was a legacy file
+     */
+    public void saveCyclingPortalDelta(String filename) throws IOException {
+        Objects.requireNonNull(filename, "filename");
+        long baseSnapshotId = changes.getBaseSnapshotId();
+        if (baseSnapshotId == 0) {
+            throw new IllegalStateException(
+                    "Save or load a complete snapshot before saving a delta");
+        }
+
+        List<Team> changedTeams = new ArrayList<>();
+        for (int teamId : changes.getChangedTeams()) {
+            Team team = teams.get(teamId);
+            if (team != null) {
+                changedTeams.add(team);
+            }
+        }
+        List<Race> changedRaces = new ArrayList<>();
+        for (Race race : races.values()) {
+            if (changes.isRaceChanged(race.getRaceID())
+                    || race.getStages().stream().anyMatch(Stage::hasUnsavedResults)) {
+                changedRaces.add(race);
             }
-            state = portalState;
         }
+        PortalState changed = new PortalState(
+                changedRaces, List.of(), List.of(), changedTeams, List.of(),
+                races.getNextId(), stages.getNextId(), checkpoints.getNextId(),
+                teams.getNextId(), riders.getNextId(), currentJournalSequence(), baseSnapshotId);
+        SnapshotFormat.writeDelta(Path.of(filename), changed, baseSnapshotId,
+                changes.getRemovedTeams(), changes.getRemovedRaces());
+    }
+
+    /**
+     * Loads a complete snapshot together with a delta saved against it.
+     *
+     * <p>{@code baseFilename} stays the base, so deltas this portal saves
+     * later still include the changes in {@code deltaFilename}.</p>
+     *
+     * @param baseFilename  the complete snapshot
+     * @param deltaFilename a delta saved against {@code baseFilename}
+     * @throws IOException           if either file cannot be read, is not of
+     *                               the expected kind or the delta was saved
+     *                               against a different base; the current
+     *                               state is then unchanged
+     * @throws IllegalStateException if a journal is open
+     */
+    public void loadCyclingPortal(String baseFilename, String deltaFilename) throws IOException {
+        Objects.requireNonNull(baseFilename, "baseFilename");
+        Objects.requireNonNull(deltaFilename, "deltaFilename");
+        requireNoJournal();
+        ChangeTracker loadedChanges = new ChangeTracker();
+        PortalState state = SnapshotFormat.readDelta(
+                Path.of(baseFilename), Path.of(deltaFilename), loadedChanges);
+        applyState(state);
+        startBase(state.snapshotId);
+        changes.restore(loadedChanges);
+    }
+
+    /**
+     * Merges a delta into its base: saves this portal as a new complete
+     * snapshot over {@code baseFilename}, then deletes {@code deltaFilename}.
+     * Later deltas are relative to the new base. To compact files without a
+     * running portal, load them with {@link #loadCyclingPortal(String, String)}
+     * first.
+     *
+     * <p>Should the process stop between the two steps, the leftover delta
+     * names the old base and is rejected, while the new base is complete on
+     * its own.</p>
+     *
+     * @param baseFilename  the base snapshot to replace
+     * @param deltaFilename the delta to delete
+     * @throws IOException if either file cannot be written or deleted
+     */
+    public void compactCyclingPortal(String baseFilename, String deltaFilename)
+            throws IOException {
+        Objects.requireNonNull(deltaFilename, "deltaFilename");
+        saveCyclingPortal(baseFilename);
+        Files.deleteIfExists(Path.of(deltaFilename));
+    }
+
+    /**
+     * Loads a saved portal by memory-mapping the file, for a fast restart.
+     *
+     * <p>Entities and the rider index of every stage's results are rebuilt
+     * straight from the mapped file; result times are decoded only when a
+     * stage is first queried or changed. The portal keeps reading the mapped
+     * file until then, which is safe because saving replaces a file rather
+     * than overwriting it. Legacy serialized files are loaded in full.</p>
+     *
+     * <p>The file's structure is checked while loading, but a result time
+     * outside the day is only found when its stage is first used. That call
+     * then throws an {@link java.io.UncheckedIOException}.</p>
+     *
+     * @param filename the location of the saved portal
+     * @throws IOException            if the file cannot be read or is not a
+     *                                saved portal; the current state is then
+     *                                unchanged
+     * @throws ClassNotFoundException if a legacy file refers to an unknown
+     *                                class
+     */
+    public void loadCyclingPortalMapped(String filename)
+            throws IOException, ClassNotFoundException {
+        Objects.requireNonNull(filename, "filename");
+        requireNoJournal();
+        PortalState state = SnapshotFormat.map(Path.of(filename));
+        applyState(state);
+        startBase(state.snapshotId);
+    }
+
+    /**
+     * Restores the portal from a snapshot and the journal written since, then
+     * journals every further mutation to the same journal file.
+     *
+     * <p>The snapshot is loaded if it exists, and each journal record it does
+     * not already include is replayed on top, so after a crash this returns
+     * the portal to its last journaled state. If neither file exists the
+     * portal starts empty with a new journal. Records are appended in a few
+     * microseconds and forced to disk in batches by a background thread; see
+     * {@link #syncJournal()} for when a write must be durable before
+     * continuing. Saving to {@code snapshotFile} later empties the
+     * journal.</p>
+     *
+     * @param snapshotFile the snapshot the journal continues from
+     * @param journalFile  the journal to replay and append to
+     * @throws IOException            if either file cannot be read or a record
+     *                                cannot be replayed; the current state is
+     *                                then unchanged
+     * @throws ClassNotFoundException if a legacy snapshot refers to an unknown
+     *                                class
+     * @throws IllegalStateException  if a journal is already open
+     */
+    public void recoverCyclingPortal(String snapshotFile, String journalFile)
+            throws IOException, ClassNotFoundException {
+        Objects.requireNonNull(snapshotFile, "snapshotFile");
+        Objects.requireNonNull(journalFile, "journalFile");
+        requireNoJournal();
+        Path snapshotPath = Path.of(snapshotFile).toAbsolutePath().normalize();
+
+        // Replay into a scratch portal so that a failure leaves this one intact.
+        CyclingPortalImpl recovered = new CyclingPortalImpl();
+        if (Files.exists(snapshotPath)) {
+            PortalState state = SnapshotFormat.read(snapshotPath);
+            recovered.applyState(state);
+            recovered.startBase(state.snapshotId);
+        }
+        PortalJournal opened = PortalJournal.open(
+                Path.of(journalFile), recovered.journalSequence, recovered::replay);
+        applyState(recovered.captureState());
+        // Replayed mutations are changes relative to the snapshot.
+        changes.restore(recovered.changes);
+        journalSnapshot = snapshotPath;
+        journal = opened;
+    }
+
+    /**
+     * Blocks until every journaled mutation is on disk. Does nothing if no
+     * journal is open.
+     *
+     * @throws IOException if the journal could not be written
+     */
+    public void syncJournal() throws IOException {
+        PortalJournal active = journal;
+        if (active != null) {
+            active.sync();
+        }
+    }
 
-        // Assignment happens only after the complete snapshot has been read.
-        races = new ArrayList<>(state.races);
-        stages = new ArrayList<>(state.stages);
-        checkpoints = new ArrayList<>(state.checkpoints);
-        teams = new ArrayList<>(state.teams);
-        riders = new ArrayList<>(state.riders);
-        results = new ArrayList<>(state.results);
-        nextRaceId = state.nextRaceId;
-        nextStageId = state.nextStageId;
-        nextCheckpointId = state.nextCheckpointId;
-        nextTeamId = state.nextTeamId;
-        nextRiderId = state.nextRiderId;
+    /**
+     * Writes any pending journal records and stops journaling. Does nothing
+     * if no journal is open.
+     *
+     * @throws IOException if the journal could not be written
+     */
+    public void closeJournal() throws IOException {
+        PortalJournal active = journal;
+        if (active == null) {
+            return;
+        }
+        journal = null;
+        journalSequence = active.getLastSequence();
+        active.close();
+    }
+
+    @Override
+    public CyclingPortal snapshot() {
+        CyclingPortalImpl copy = new CyclingPortalImpl();
+        copy.applyState(copyState());
+        return new PortalSnapshot(copy);
     }
 
     @Override
     public void removeRaceByName(String name) throws NameNotRecognisedException {
-        Race race = races.stream()
-                .filter(candidate -> candidate.getRaceName().equals(name))
-                .findFirst()
-                .orElseThrow(() -> new NameNotRecognisedException(
-                        "No race named '" + name + "' exists"));
-        removeRace(race);
+        removeRace(requireRaceNamed(name));
+    }
+
+    @Override
+    public int getRaceIdByName(String name) throws NameNotRecognisedException {
+        return requireRaceNamed(name).getRaceID();
+    }
+
+    @Override
+    public int getStageIdByName(String name) throws NameNotRecognisedException {
+        Stage stage = stagesByName.get(name);
+        if (stage == null) {
+            throw new NameNotRecognisedException("No stage named '" + name + "' exists");
+        }
+        return stage.getStageID();
+    }
+
+    @Override
+    public int getTeamIdByName(String name) throws NameNotRecognisedException {
+        Team team = teamsByName.get(name);
+        if (team == null) {
+            throw new NameNotRecognisedException("No team named '" + name + "' exists");
+        }
+        return team.getTeamID();
     }
 
     @Override
     public int[] getRidersGeneralClassificationRank(int raceId)
             throws IDNotRecognisedException {
-        Race race = requireRace(raceId);
-        Map<Rider, Duration> totals = raceAdjustedTimes(race);
-        return totals.entrySet().stream()
-                .sorted(Map.Entry.<Rider, Duration>comparingByValue()
-                        .thenComparingInt(entry -> entry.getKey().getRiderID()))
-                .map(Map.Entry::getKey)
-                .mapToInt(Rider::getRiderID)
-                .toArray();
+        return generalClassification(requireRace(raceId)).getRankedRiderIds();
     }
 
     @Override
     public LocalTime[] getGeneralClassificationTimesInRace(int raceId)
             throws IDNotRecognisedException {
-        Race race = requireRace(raceId);
-        Map<Rider, Duration> totals = raceAdjustedTimes(race);
-        return totals.entrySet().stream()
-                .sorted(Map.Entry.<Rider, Duration>comparingByValue()
-                        .thenComparingInt(entry -> entry.getKey().getRiderID()))
-                .map(Map.Entry::getValue)
-                .map(CyclingPortalImpl::toLocalTime)
-                .toArray(LocalTime[]::new);
+        return generalClassificationTimes(generalClassification(requireRace(raceId)));
     }
 
     @Override
     public int[] getRidersPointsInRace(int raceId) throws IDNotRecognisedException {
         Race race = requireRace(raceId);
-        Map<Integer, Integer> totals = racePointTotals(race, this::stagePoints);
-        int[] generalClassification = getRidersGeneralClassificationRank(raceId);
-        int[] points = new int[generalClassification.length];
-        for (int index = 0; index < generalClassification.length; index++) {
-            points[index] = totals.getOrDefault(generalClassification[index], 0);
-        }
-        return points;
+        int[] generalClassification = generalClassification(race).getRankedRiderIds();
+        return pointsInOrder(generalClassification,
+                racePointTotals(race, StageScoring::getPoints)[0]);
     }
 
     @Override
     public int[] getRidersMountainPointsInRace(int raceId)
             throws IDNotRecognisedException {
         Race race = requireRace(raceId);
-        Map<Integer, Integer> totals = racePointTotals(race, this::stageMountainPoints);
-        int[] generalClassification = getRidersGeneralClassificationRank(raceId);
-        int[] points = new int[generalClassification.length];
-        for (int index = 0; index < generalClassification.length; index++) {
-            points[index] = totals.getOrDefault(generalClassification[index], 0);
-        }
-        return points;
+        int[] generalClassification = generalClassification(race).getRankedRiderIds();
+        return pointsInOrder(generalClassification,
+                racePointTotals(race, StageScoring::getMountainPoints)[0]);
     }
 
     @Override
     public int[] getRidersPointClassificationRank(int raceId)
             throws IDNotRecognisedException {
         Race race = requireRace(raceId);
-        return rankByPoints(race, racePointTotals(race, this::stagePoints));
+        int[] generalClassification = generalClassification(race).getRankedRiderIds();
+        return rankByPoints(generalClassification, pointsInOrder(generalClassification,
+                racePointTotals(race, StageScoring::getPoints)[0]));
     }
 
     @Override
     public int[] getRidersMountainPointClassificationRank(int raceId)
             throws IDNotRecognisedException {
         Race race = requireRace(raceId);
-        return rankByPoints(race, racePointTotals(race, this::stageMountainPoints));
+        int[] generalClassification = generalClassification(race).getRankedRiderIds();
+        return rankByPoints(generalClassification, pointsInOrder(generalClassification,
+                racePointTotals(race, StageScoring::getMountainPoints)[0]));
+    }
+
+    @Override
+    public RaceClassifications getRaceClassifications(int raceId)
+            throws IDNotRecognisedException {
+        Race race = requireRace(raceId);
+        GeneralClassification classification = generalClassification(race);
+        int[] generalClassification = classification.getRankedRiderIds();
+
+        IntIntIndex[] totals = racePointTotals(race,
+                StageScoring::getPoints, StageScoring::getMountainPoints);
+        int[] points = pointsInOrder(generalClassification, totals[0]);
+        int[] mountainPoints = pointsInOrder(generalClassification, totals[1]);
+        return new RaceClassifications(raceId, generalClassification,
+                generalClassificationTimes(classification), points, mountainPoints,
+                rankByPoints(generalClassification, points),
+                rankByPoints(generalClassification, mountainPoints));
+    }
+
+    @Override
+    public int[] getTopRidersInStage(int stageId, int k) throws IDNotRecognisedException {
+        Stage stage = requireStage(stageId);
+        validateLeaderCount(k);
+        int[] finishOrder = stage.getScoring().getFinishOrder();
+        return Arrays.copyOf(finishOrder, Math.min(k, finishOrder.length));
+    }
+
+    @Override
+    public int[] getTopRidersInRace(int raceId, int k) throws IDNotRecognisedException {
+        Race race = requireRace(raceId);
+        validateLeaderCount(k);
+        return generalClassification(race).getLeadingRiderIds(k);
     }
 
     private void validateEntityName(String name, String entity) throws InvalidNameException {
@@ -492,59 +801,223 @@ public class CyclingPortalImpl implements CyclingPortal {
     }
 
     private Race requireRace(int raceId) throws IDNotRecognisedException {
-        return races.stream()
-                .filter(race -> race.getRaceID() == raceId)
-                .findFirst()
-                .orElseThrow(() -> new IDNotRecognisedException("Invalid race ID: " + raceId));
+        Race race = races.get(raceId);
+        if (race == null) {
+            throw new IDNotRecognisedException("Invalid race ID: " + raceId);
+        }
+        return race;
+    }
+
+    private void validateLeaderCount(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("The number of leading riders cannot be negative");
+        }
+    }
+
+    private Race requireRaceNamed(String name) throws NameNotRecognisedException {
+        Race race = racesByName.get(name);
+        if (race == null) {
+            throw new NameNotRecognisedException("No race named '" + name + "' exists");
+        }
+        return race;
     }
 
     private Stage requireStage(int stageId) throws IDNotRecognisedException {
-        return stages.stream()
-                .filter(stage -> stage.getStageID() == stageId)
-                .findFirst()
-                .orElseThrow(() -> new IDNotRecognisedException("Invalid stage ID: " + stageId));
+        Stage stage = stages.get(stageId);
+        if (stage == null) {
+            throw new IDNotRecognisedException("Invalid stage ID: " + stageId);
+        }
+        return stage;
     }
 
     private Checkpoint requireCheckpoint(int checkpointId) throws IDNotRecognisedException {
-        return checkpoints.stream()
-                .filter(checkpoint -> checkpoint.getCheckpointID() == checkpointId)
-                .findFirst()
-                .orElseThrow(() -> new IDNotRecognisedException(
-                        "Invalid checkpoint ID: " + checkpointId));
+        Checkpoint checkpoint = checkpoints.get(checkpointId);
+        if (checkpoint == null) {
+            throw new IDNotRecognisedException("Invalid checkpoint ID: " + checkpointId);
+        }
+        return checkpoint;
     }
 
     private Team requireTeam(int teamId) throws IDNotRecognisedException {
-        return teams.stream()
-                .filter(team -> team.getTeamID() == teamId)
-                .findFirst()
-                .orElseThrow(() -> new IDNotRecognisedException("Invalid team ID: " + teamId));
+        Team team = teams.get(teamId);
+        if (team == null) {
+            throw new IDNotRecognisedException("Invalid team ID: " + teamId);
+        }
+        return team;
     }
 
     private Rider requireRider(int riderId) throws IDNotRecognisedException {
-        return riders.stream()
-                .filter(rider -> rider.getRiderID() == riderId)
-                .findFirst()
-                .orElseThrow(() -> new IDNotRecognisedException("Invalid rider ID: " + riderId));
+        Rider rider = riders.get(riderId);
+        if (rider == null) {
+            throw new IDNotRecognisedException("Invalid rider ID: " + riderId);
+        }
+        return rider;
     }
 
     private void removeRace(Race race) {
-        for (Stage stage : new ArrayList<>(race.getStages())) {
-            removeStage(stage);
+        log(PortalJournal.REMOVE_RACE, record -> record.putInt(race.getRaceID()));
+        for (Stage stage : race.getStages()) {
+            discardStage(stage);
         }
-        races.remove(race);
+        races.remove(race.getRaceID());
+        racesByName.remove(race.getRaceName());
+        changes.raceRemoved(race.getRaceID());
     }
 
     private void removeStage(Stage stage) {
-        checkpoints.removeIf(checkpoint -> checkpoint.getStage() == stage);
-        results.removeIf(result -> result.getStage() == stage);
+        log(PortalJournal.REMOVE_STAGE, record -> record.putInt(stage.getStageID()));
+        discardStage(stage);
         stage.getRace().removeStage(stage);
-        stages.remove(stage);
+        changes.raceChanged(stage.getRace().getRaceID());
+    }
+
+    /**
+     * Unregisters a stage and its checkpoints and drops rider back-references.
+     * Detaching the stage from its race is left to the caller, so that removing
+     * a whole race need not edit the race's stage list.
+     */
+    private void discardStage(Stage stage) {
+        for (Checkpoint checkpoint : stage.getCheckpoints()) {
+            checkpoints.remove(checkpoint.getCheckpointID());
+        }
+        StageResults results = stage.getResultStore();
+        for (int row = 0; row < results.size(); row++) {
+            riders.get(results.getRiderId(row)).removeResultStage(stage);
+        }
+        stages.remove(stage.getStageID());
+        stagesByName.remove(stage.getStageName());
     }
 
     private void removeRider(Rider rider) {
-        results.removeIf(result -> result.getRider() == rider);
+        log(PortalJournal.REMOVE_RIDER, record -> record.putInt(rider.getRiderID()));
+        detachResults(rider);
         rider.getTeam().removeRider(rider);
-        riders.remove(rider);
+        riders.remove(rider.getRiderID());
+        changes.teamChanged(rider.getTeam().getTeamID());
+    }
+
+    private void detachResults(Rider rider) {
+        for (Stage stage : new ArrayList<>(rider.getResultStages())) {
+            stage.removeResult(rider);
+        }
+    }
+
+    /**
+     * Returns the live entities and ID counters; the entities are not copied.
+     */
+    PortalState captureState() {
+        return new PortalState(
+                races.values(), stages.values(), checkpoints.values(),
+                teams.values(), riders.values(),
+                races.getNextId(), stages.getNextId(), checkpoints.getNextId(),
+                teams.getNextId(), riders.getNextId(), currentJournalSequence(), 0);
+    }
+
+    /**
+     * Makes the state just saved or loaded the base that delta snapshots are
+     * relative to.
+     */
+    private void startBase(long snapshotId) {
+        changes.startBase(snapshotId);
+        for (Stage stage : stages.values()) {
+            stage.markResultsSaved();
+        }
+    }
+
+    private long currentJournalSequence() {
+        PortalJournal active = journal;
+        return active == null ? journalSequence : active.getLastSequence();
+    }
+
+    private void applyState(PortalState state) {
+        races.restore(state.races, Race::getRaceID, state.nextRaceId);
+        stages.restore(state.stages, Stage::getStageID, state.nextStageId);
+        checkpoints.restore(state.checkpoints, Checkpoint::getCheckpointID, state.nextCheckpointId);
+        teams.restore(state.teams, Team::getTeamID, state.nextTeamId);
+        riders.restore(state.riders, Rider::getRiderID, state.nextRiderId);
+        journalSequence = state.journalSequence;
+        racesByName.clear();
+        stagesByName.clear();
+        teamsByName.clear();
+        state.races.forEach(race -> racesByName.put(race.getRaceName(), race));
+        state.stages.forEach(stage -> stagesByName.put(stage.getStageName(), stage));
+        state.teams.forEach(team -> teamsByName.put(team.getTeamName(), team));
+    }
+
+    /**
+     * Copies the entity graph for a snapshot. Stage results are shared
+     * copy-on-write rather than copied. Riders in the copy carry no result
+     * back-references, which only removals use and a snapshot never removes.
+     *
+     * <p>A rider being created concurrently can be looked up, and so given
+     * results, before it joins its team's roster. Riders are therefore taken
+     * from the registry as well as the rosters, so that the copy holds every
+     * rider its results name.</p>
+     */
+    private PortalState copyState() {
+        List<Team> teamCopies = new ArrayList<>();
+        List<Rider> riderCopies = new ArrayList<>();
+        IntIndex<Team> teamCopiesById = new IntIndex<>();
+        IntIndex<Rider> riderCopiesById = new IntIndex<>();
+        for (Team team : teams.values()) {
+            Team teamCopy = new Team(team.getTeamID(), team.getTeamName(), team.getTeamDescription());
+            for (Rider rider : team.getRiders()) {
+                copyRider(rider, teamCopy, riderCopies, riderCopiesById);
+            }
+            teamCopies.add(teamCopy);
+            teamCopiesById.put(teamCopy.getTeamID(), teamCopy);
+        }
+        for (Rider rider : riders.values()) {
+            Team teamCopy = teamCopiesById.get(rider.getTeam().getTeamID());
+            if (teamCopy != null && !riderCopiesById.containsKey(rider.getRiderID())) {
+                copyRider(rider, teamCopy, riderCopies, riderCopiesById);
+            }
+        }
+
+        List<Race> raceCopies = new ArrayList<>();
+        List<Stage> stageCopies = new ArrayList<>();
+        List<Checkpoint> checkpointCopies = new ArrayList<>();
+        for (Race race : races.values()) {
+            Race raceCopy = new Race(race.getRaceID(), race.getRaceName(), race.getRaceDescription());
+            for (Stage stage : race.getStages()) {
+                Stage stageCopy = stage.copyFor(raceCopy);
+                raceCopy.addStage(stageCopy);
+                stageCopies.add(stageCopy);
+                checkpointCopies.addAll(stageCopy.getCheckpoints());
+            }
+            raceCopies.add(raceCopy);
+        }
+        return new PortalState(raceCopies, stageCopies, checkpointCopies, teamCopies, riderCopies,
+                races.getNextId(), stages.getNextId(), checkpoints.getNextId(),
+                teams.getNextId(), riders.getNextId(), currentJournalSequence(), 0);
+    }
+
+    private static void copyRider(Rider rider, Team teamCopy, List<Rider> riderCopies,
+            IntIndex<Rider> riderCopiesById) {
+        Rider riderCopy = new Rider(rider.getRiderID(), rider.getRiderName(),
+                rider.getYearOfBirth(), teamCopy);
+        teamCopy.addRider(riderCopy);
+        riderCopies.add(riderCopy);
+        riderCopiesById.put(riderCopy.getRiderID(), riderCopy);
+    }
+
+    private static void requireNameAvailable(Map<String, ?> names, String name, String entity)
+            throws IllegalNameException {
+        if (names.containsKey(name)) {
+            throw new IllegalNameException("A " + entity + " named '" + name + "' already exists");
+        }
+    }
+
+    /**
+     * Atomically reserves a name. The preceding availability check avoids
+     * spending an ID on an obvious duplicate; this one settles concurrent
+     * creations of the same name.
+     */
+    private static <T> void claimName(Map<String, T> names, String name, T value, String entity)
+            throws IllegalNameException {
+        if (names.putIfAbsent(name, value) != null) {
+            throw new IllegalNameException("A " + entity + " named '" + name + "' already exists");
+        }
     }
 
     private void validateCheckpointMutation(Stage stage)
@@ -569,220 +1042,346 @@ public class CyclingPortalImpl implements CyclingPortal {
     private int addCheckpoint(Stage stage, double location, CheckpointType type,
             Double averageGradient, Double length) {
         Checkpoint checkpoint = new Checkpoint(
-                nextCheckpointId++, location, type, averageGradient, length, stage);
-        checkpoints.add(checkpoint);
+                checkpoints.allocateId(), location, type, averageGradient, length, stage);
+        log(PortalJournal.ADD_CHECKPOINT, record -> {
+            record.putInt(checkpoint.getCheckpointID());
+            record.putInt(stage.getStageID());
+            record.putDouble(location);
+            record.putByte(type.ordinal());
+            record.putNullableDouble(averageGradient);
+            record.putNullableDouble(length);
+        });
+        checkpoints.register(checkpoint.getCheckpointID(), checkpoint);
         stage.addCheckpoint(checkpoint);
+        changes.raceChanged(stage.getRace().getRaceID());
         return checkpoint.getCheckpointID();
     }
 
-    private void validateCheckpointTimes(Stage stage, LocalTime[] checkpointTimes)
-            throws InvalidCheckpointTimesException {
-        int expectedLength = stage.getCheckpoints().size() + 2;
-        if (checkpointTimes == null || checkpointTimes.length != expectedLength) {
-            throw new InvalidCheckpointTimesException(
-                    "Expected " + expectedLength + " ordered times including start and finish");
+    /**
+     * Journals a mutation. Every mutator calls this after validating and
+     * before changing anything, so that a journal that can no longer be
+     * written fails the call with the portal unchanged.
+     */
+    private void log(byte operation, Consumer<BinaryWriter> payload) {
+        PortalJournal active = journal;
+        if (active != null) {
+            active.append(operation, payload);
         }
-        for (int index = 0; index < checkpointTimes.length; index++) {
-            if (checkpointTimes[index] == null) {
-                throw new InvalidCheckpointTimesException("Checkpoint times cannot contain null");
-            }
-            if (index > 0 && checkpointTimes[index].isBefore(checkpointTimes[index - 1])) {
-                throw new InvalidCheckpointTimesException(
-                        "Checkpoint times must be in chronological order");
-            }
-        }
-    }
-
-    private Result findResult(Stage stage, Rider rider) {
-        return results.stream()
-                .filter(result -> result.getStage() == stage && result.getRider() == rider)
-                .findFirst()
-                .orElse(null);
-    }
-
-    private List<Result> resultsForStage(Stage stage) {
-        return results.stream().filter(result -> result.getStage() == stage).toList();
-    }
-
-    private List<Result> rankedResults(Stage stage) {
-        return resultsForStage(stage).stream()
-                .sorted(Comparator.comparing(CyclingPortalImpl::elapsed)
-                        .thenComparingInt(result -> result.getRider().getRiderID()))
-                .toList();
     }
 
-    private static Duration elapsed(Result result) {
-        List<LocalTime> times = result.getCheckpointTimes();
-        return durationBetween(times.get(0), times.get(times.size() - 1));
+    /**
+     * Journals the creation of an entity whose name is already claimed,
+     * releasing the name if the record cannot be appended.
+     */
+    private void logClaimed(Map<String, ?> names, String name, byte operation,
+            Consumer<BinaryWriter> payload) {
+        try {
+            log(operation, payload);
+        } catch (RuntimeException exception) {
+            names.remove(name);
+            throw exception;
+        }
     }
 
-    private static Duration durationBetween(LocalTime start, LocalTime end) {
-        Duration duration = Duration.between(start, end);
-        return duration.isNegative() ? duration.plusHours(24) : duration;
+    private static void putTimes(BinaryWriter record, LocalTime[] times) {
+        record.putInt(times.length);
+        for (LocalTime time : times) {
+            record.putLong(time.toNanoOfDay());
+        }
     }
 
-    private static LocalTime toLocalTime(Duration duration) {
-        return LocalTime.MIDNIGHT.plusNanos(duration.toNanos());
+    private static LocalTime[] getTimes(ByteBuffer record) {
+        LocalTime[] times = new LocalTime[record.getInt()];
+        for (int index = 0; index < times.length; index++) {
+            times[index] = LocalTime.ofNanoOfDay(record.getLong());
+        }
+        return times;
     }
 
-    private Map<Rider, Duration> adjustedTimes(Stage stage) {
-        List<Result> ranked = rankedResults(stage);
-        Map<Rider, Duration> adjusted = new LinkedHashMap<>();
-        if (stage.getStageType() == StageType.TT) {
-            ranked.forEach(result -> adjusted.put(result.getRider(), elapsed(result)));
-            return adjusted;
+    private void requireNoJournal() {
+        if (journal != null) {
+            throw new IllegalStateException("Close the journal before loading another portal");
         }
+    }
 
-        Duration previousActual = null;
-        Duration groupTime = null;
-        for (Result result : ranked) {
-            Duration actual = elapsed(result);
-            if (previousActual == null
-                    || actual.minus(previousActual).compareTo(ONE_SECOND) >= 0) {
-                groupTime = actual;
+    /**
+     * Applies one journal record. Creations are given the identifier they
+     * were recorded with; see {@link #replayCreation}.
+     */
+    private void replay(byte operation, ByteBuffer record) throws Exception {
+        switch (operation) {
+            case PortalJournal.CREATE_RACE -> {
+                int raceId = record.getInt();
+                String name = SnapshotFormat.getString(record);
+                String description = SnapshotFormat.getString(record);
+                replayCreation(races, raceId, () -> createRace(name, description));
+            }
+            case PortalJournal.REMOVE_RACE -> removeRaceById(record.getInt());
+            case PortalJournal.ADD_STAGE -> {
+                int stageId = record.getInt();
+                int raceId = record.getInt();
+                String name = SnapshotFormat.getString(record);
+                String description = SnapshotFormat.getString(record);
+                double length = record.getDouble();
+                LocalDateTime startTime = SnapshotFormat.getDateTime(record);
+                StageType type = StageType.values()[record.get()];
+                replayCreation(stages, stageId, () -> addStageToRace(
+                        raceId, name, description, length, startTime, type));
+            }
+            case PortalJournal.REMOVE_STAGE -> removeStageById(record.getInt());
+            case PortalJournal.ADD_CHECKPOINT -> {
+                int checkpointId = record.getInt();
+                int stageId = record.getInt();
+                double location = record.getDouble();
+                CheckpointType type = CheckpointType.values()[record.get()];
+                Double averageGradient = SnapshotFormat.getNullableDouble(record);
+                Double length = SnapshotFormat.getNullableDouble(record);
+                replayCreation(checkpoints, checkpointId, () -> type == CheckpointType.SPRINT
+                        ? addIntermediateSprintToStage(stageId, location)
+                        : addCategorizedClimbToStage(
+                                stageId, location, type, averageGradient, length));
+            }
+            case PortalJournal.REMOVE_CHECKPOINT -> removeCheckpoint(record.getInt());
+            case PortalJournal.CONCLUDE_PREPARATION -> concludeStagePreparation(record.getInt());
+            case PortalJournal.CREATE_TEAM -> {
+                int teamId = record.getInt();
+                String name = SnapshotFormat.getString(record);
+                String description = SnapshotFormat.getString(record);
+                replayCreation(teams, teamId, () -> createTeam(name, description));
+            }
+            case PortalJournal.REMOVE_TEAM -> removeTeam(record.getInt());
+            case PortalJournal.CREATE_RIDER -> {
+                int riderId = record.getInt();
+                int teamId = record.getInt();
+                String name = SnapshotFormat.getString(record);
+                int yearOfBirth = record.getInt();
+                replayCreation(riders, riderId, () -> createRider(teamId, name, yearOfBirth));
             }
-            adjusted.put(result.getRider(), groupTime);
-            previousActual = actual;
+            case PortalJournal.REMOVE_RIDER -> removeRider(record.getInt());
+            case PortalJournal.REGISTER_RESULT ->
+                    registerRiderResultsInStage(record.getInt(), record.getInt(), getTimes(record));
+            case PortalJournal.REGISTER_RESULTS -> {
+                int stageId = record.getInt();
+                int[] riderIds = new int[record.getInt()];
+                LocalTime[][] times = new LocalTime[riderIds.length][];
+                for (int row = 0; row < riderIds.length; row++) {
+                    riderIds[row] = record.getInt();
+                    times[row] = getTimes(record);
+                }
+                registerStageResultsBatch(stageId, riderIds, times);
+            }
+            case PortalJournal.DELETE_RESULT ->
+                    deleteRiderResultsInStage(record.getInt(), record.getInt());
+            case PortalJournal.ERASE -> eraseCyclingPortal();
+            default -> throw new IOException("Unknown journal operation " + operation);
         }
-        return adjusted;
     }
 
-    private Map<Rider, Integer> stagePoints(Stage stage) {
-        List<Result> finishRank = rankedResults(stage);
-        Map<Rider, Integer> totals = initialisePointTotals(finishRank);
-        applyPoints(finishRank, FINISH_POINTS.get(stage.getStageType()), totals);
-
-        List<Checkpoint> stageCheckpoints = stage.getCheckpoints();
-        for (int checkpointIndex = 0; checkpointIndex < stageCheckpoints.size(); checkpointIndex++) {
-            if (stageCheckpoints.get(checkpointIndex).getCheckpointType() == CheckpointType.SPRINT) {
-                applyPoints(rankAtCheckpoint(stage, checkpointIndex), SPRINT_POINTS, totals);
-            }
+    /**
+     * Replays a creation so that it receives {@code id}. Concurrent creations
+     * may be journaled out of identifier order, and failed ones consume an
+     * identifier without a record, so the counter is pinned for the one call
+     * and then left past every identifier seen.
+     */
+    private static void replayCreation(EntityRegistry<?> registry, int id, Callable<?> creation)
+            throws Exception {
+        if (registry.get(id) != null) {
+            throw new IOException("Identifier " + id + " is already in use");
+        }
+        int nextId = Math.max(registry.getNextId(), id + 1);
+        registry.setNextId(id);
+        try {
+            creation.call();
+        } finally {
+            registry.setNextId(nextId);
         }
-        return totals;
     }
 
-    private Map<Rider, Integer> stageMountainPoints(Stage stage) {
-        List<Result> finishRank = rankedResults(stage);
-        Map<Rider, Integer> totals = initialisePointTotals(finishRank);
-        List<Checkpoint> stageCheckpoints = stage.getCheckpoints();
-        for (int checkpointIndex = 0; checkpointIndex < stageCheckpoints.size(); checkpointIndex++) {
-            Checkpoint checkpoint = stageCheckpoints.get(checkpointIndex);
-            List<Integer> scale = MOUNTAIN_POINTS.get(checkpoint.getCheckpointType());
-            if (scale != null) {
-                applyPoints(rankAtCheckpoint(stage, checkpointIndex), scale, totals);
+    private void validateCheckpointTimes(Stage stage, LocalTime[] checkpointTimes)
+            throws InvalidCheckpointTimesException {
+        int expectedLength = stage.getCheckpoints().size() + 2;
+        if (checkpointTimes == null || checkpointTimes.length != expectedLength) {
+            throw new InvalidCheckpointTimesException(
+                    "Expected " + expectedLength + " ordered times including start and finish");
+        }
+        for (int index = 0; index < checkpointTimes.length; index++) {
+            if (checkpointTimes[index] == null) {
+                throw new InvalidCheckpointTimesException("Checkpoint times cannot contain null");
+            }
+            if (index > 0 && checkpointTimes[index].isBefore(checkpointTimes[index - 1])) {
+                throw new InvalidCheckpointTimesException(
+                        "Checkpoint times must be in chronological order");
             }
         }
-        return totals;
     }
 
-    private Map<Rider, Integer> initialisePointTotals(List<Result> rankedResults) {
-        Map<Rider, Integer> totals = new LinkedHashMap<>();
-        rankedResults.forEach(result -> totals.put(result.getRider(), 0));
-        return totals;
+    private static LocalTime toLocalTime(long nanos) {
+        return LocalTime.MIDNIGHT.plusNanos(nanos);
     }
 
-    private void applyPoints(List<Result> ranking, List<Integer> scale,
-            Map<Rider, Integer> totals) {
-        int awardedPlaces = Math.min(ranking.size(), scale.size());
-        for (int index = 0; index < awardedPlaces; index++) {
-            Rider rider = ranking.get(index).getRider();
-            totals.merge(rider, scale.get(index), Integer::sum);
+    private GeneralClassification generalClassification(Race race) {
+        List<Stage> raceStages = race.getStages();
+        if (parallelEvaluation && raceStages.size() > 1) {
+            // Score stale stages concurrently; the refresh then only merges.
+            raceStages.parallelStream().forEach(Stage::getScoring);
         }
-    }
-
-    private List<Result> rankAtCheckpoint(Stage stage, int checkpointIndex) {
-        return resultsForStage(stage).stream()
-                .sorted(Comparator
-                        .comparing((Result result) -> checkpointElapsed(result, checkpointIndex))
-                        .thenComparingInt(result -> result.getRider().getRiderID()))
-                .toList();
-    }
-
-    private Duration checkpointElapsed(Result result, int checkpointIndex) {
-        List<LocalTime> times = result.getCheckpointTimes();
-        return durationBetween(times.get(0), times.get(checkpointIndex + 1));
-    }
-
-    private Map<Rider, Duration> raceAdjustedTimes(Race race) {
-        Map<Rider, Duration> totals = new LinkedHashMap<>();
-        for (Stage stage : race.getStages()) {
-            adjustedTimes(stage).forEach(
-                    (rider, duration) -> totals.merge(rider, duration, Duration::plus));
+        GeneralClassification classification = race.getGeneralClassification();
+        classification.refresh(raceStages);
+        return classification;
+    }
+
+    /**
+     * Sums each calculator's points per rider over the stages of a race. In
+     * parallel mode the stream splits the stages across the common fork-join
+     * pool and the partial totals are merged pairwise on the way back up;
+     * integer sums do not depend on that order, so both paths agree exactly.
+     */
+    private IntIntIndex[] racePointTotals(Race race, StagePointCalculator... calculators) {
+        List<Stage> raceStages = race.getStages();
+        Stream<Stage> stream = parallelEvaluation && raceStages.size() > 1
+                ? raceStages.parallelStream()
+                : raceStages.stream();
+        return stream.collect(
+                () -> newTotals(calculators.length),
+                (totals, stage) -> {
+                    StageScoring scoring = stage.getScoring();
+                    for (int index = 0; index < calculators.length; index++) {
+                        addPoints(scoring.getFinishOrder(),
+                                calculators[index].pointsInFinishOrder(scoring), totals[index]);
+                    }
+                },
+                (totals, other) -> {
+                    for (int index = 0; index < totals.length; index++) {
+                        totals[index].addAll(other[index]);
+                    }
+                });
+    }
+
+    private static IntIntIndex[] newTotals(int count) {
+        IntIntIndex[] totals = new IntIntIndex[count];
+        for (int index = 0; index < count; index++) {
+            totals[index] = new IntIntIndex();
         }
         return totals;
     }
 
-    private Map<Integer, Integer> racePointTotals(
-            Race race, StagePointCalculator calculator) {
-        Map<Integer, Integer> totals = new HashMap<>();
-        for (Stage stage : race.getStages()) {
-            calculator.calculate(stage).forEach(
-                    (rider, points) -> totals.merge(rider.getRiderID(), points, Integer::sum));
+    private static void addPoints(int[] riderIds, int[] points, IntIntIndex totals) {
+        for (int index = 0; index < riderIds.length; index++) {
+            totals.addTo(riderIds[index], points[index]);
         }
-        return totals;
     }
 
-    private int[] rankByPoints(Race race, Map<Integer, Integer> totals)
-            throws IDNotRecognisedException {
-        int[] generalClassification = getRidersGeneralClassificationRank(race.getRaceID());
-        Map<Integer, Integer> generalClassificationPosition = new HashMap<>();
-        for (int index = 0; index < generalClassification.length; index++) {
-            generalClassificationPosition.put(generalClassification[index], index);
+    private static LocalTime[] generalClassificationTimes(GeneralClassification classification) {
+        long[] totals = classification.getRankedTimes();
+        LocalTime[] times = new LocalTime[totals.length];
+        for (int index = 0; index < totals.length; index++) {
+            times[index] = toLocalTime(totals[index]);
         }
+        return times;
+    }
 
-        Set<Integer> riderIds = new LinkedHashSet<>();
-        for (Stage stage : race.getStages()) {
-            resultsForStage(stage).forEach(result -> riderIds.add(result.getRider().getRiderID()));
+    private static int[] pointsInOrder(int[] riderIds, IntIntIndex totals) {
+        int[] points = new int[riderIds.length];
+        for (int index = 0; index < riderIds.length; index++) {
+            points[index] = totals.get(riderIds[index], 0);
         }
+        return points;
+    }
 
-        return riderIds.stream()
-                .sorted(Comparator
-                        .comparingInt((Integer riderId) -> totals.getOrDefault(riderId, 0))
-                        .reversed()
-                        .thenComparingInt(riderId ->
-                                generalClassificationPosition.getOrDefault(riderId, Integer.MAX_VALUE))
-                        .thenComparingInt(Integer::intValue))
-                .mapToInt(Integer::intValue)
+    /**
+     * Orders riders by descending points. Both arrays are in general
+     * classification order, so the stable sort breaks ties on GC position.
+     */
+    private static int[] rankByPoints(int[] generalClassification, int[] points) {
+        return IntStream.range(0, generalClassification.length)
+                .boxed()
+                .sorted(Comparator.comparingInt((Integer position) -> points[position]).reversed())
+                .mapToInt(position -> generalClassification[position])
                 .toArray();
     }
 
     @FunctionalInterface
     private interface StagePointCalculator {
-        Map<Rider, Integer> calculate(Stage stage);
+        int[] pointsInFinishOrder(StageScoring scoring);
     }
 
-    private static final class PortalState implements Serializable {
+    /**
+     * Everything a saved portal holds. It is also the object graph of the
+     * legacy serialized snapshot format, so fields may only be added. Files
+     * saved before stages held their own results list every {@link Result}
+     * here instead; {@link #readResolve()} moves them into their stages.
+     */
+    static final class PortalState implements Serializable {
         @Serial
         private static final long serialVersionUID = 1L;
 
-        private final List<Race> races;
-        private final List<Stage> stages;
-        private final List<Checkpoint> checkpoints;
-        private final List<Team> teams;
-        private final List<Rider> riders;
+        final List<Race> races;
+        final List<Stage> stages;
+        final List<Checkpoint> checkpoints;
+        final List<Team> teams;
+        final List<Rider> riders;
+        /** Results of files saved before stages stored them; otherwise {@code null}. */
         private final List<Result> results;
-        private final int nextRaceId;
-        private final int nextStageId;
-        private final int nextCheckpointId;
-        private final int nextTeamId;
-        private final int nextRiderId;
-
-        private PortalState(List<Race> races, List<Stage> stages,
+        final int nextRaceId;
+        final int nextStageId;
+        final int nextCheckpointId;
+        final int nextTeamId;
+        final int nextRiderId;
+        /** Sequence number of the last journal record included; absent in legacy files. */
+        final long journalSequence;
+        /**
+         * Identifier of the complete snapshot this state was read from, which
+         * delta snapshots name as their base; {@code 0} if there is none.
+         */
+        final long snapshotId;
+
+        PortalState(List<Race> races, List<Stage> stages,
                 List<Checkpoint> checkpoints, List<Team> teams,
-                List<Rider> riders, List<Result> results,
+                List<Rider> riders,
                 int nextRaceId, int nextStageId, int nextCheckpointId,
-                int nextTeamId, int nextRiderId) {
+                int nextTeamId, int nextRiderId, long journalSequence, long snapshotId) {
             this.races = new ArrayList<>(races);
             this.stages = new ArrayList<>(stages);
             this.checkpoints = new ArrayList<>(checkpoints);
             this.teams = new ArrayList<>(teams);
             this.riders = new ArrayList<>(riders);
-            this.results = new ArrayList<>(results);
+            this.results = null;
             this.nextRaceId = nextRaceId;
             this.nextStageId = nextStageId;
             this.nextCheckpointId = nextCheckpointId;
             this.nextTeamId = nextTeamId;
             this.nextRiderId = nextRiderId;
+            this.journalSequence = journalSequence;
+            this.snapshotId = snapshotId;
+        }
+
+        /**
+         * Moves results of older files into their stages and links every
+         * rider back to the stages holding its results, which riders do not
+         * serialize.
+         */
+        @Serial
+        private Object readResolve() {
+            if (results != null) {
+                for (Result result : results) {
+                    result.getStage().addResult(result.getRider(),
+                            result.getCheckpointTimes().toArray(LocalTime[]::new));
+                }
+            }
+            IntIndex<Rider> ridersById = new IntIndex<>();
+            for (Rider rider : riders) {
+                ridersById.put(rider.getRiderID(), rider);
+            }
+            for (Stage stage : stages) {
+                StageResults stored = stage.getResultStore();
+                for (int row = 0; row < stored.size(); row++) {
+                    Rider rider = ridersById.get(stored.getRiderId(row));
+                    if (rider != null) {
+                        rider.addResultStage(stage);
+                    }
+                }
+            }
+            return this;
         }
     }
 }
@@ -0,0 +1,167 @@
+package cycling;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+/**
+ * Allocates identifiers for one kind of entity and indexes the live entities
+ * by identifier.
+ *
+ * <p>Identifiers come from an atomic counter and entities are held in a fixed
+ * number of {@link IntIndex} stripes selected by the low bits of the
+ * identifier, each guarded by its own monitor, so several threads may create
+ * and look up entities without a shared lock and without boxing. Identifiers
+ * are never reused; because they increase monotonically, listing entities in
+ * identifier order also lists them in creation order. The sorted identifiers
+ * are cached until the next insertion or removal.</p>
+ *
+ * @param <T> the entity type
+ */
+final class EntityRegistry<T> implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final int STRIPES = 16;
+
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final IntIndex<T>[] stripes;
+    /** Bumped after every change to the stripes. */
+    private final AtomicLong modifications = new AtomicLong();
+    private transient volatile SortedIds sortedIds;
+
+    @SuppressWarnings("unchecked")
+    EntityRegistry() {
+        stripes = (IntIndex<T>[]) new IntIndex<?>[STRIPES];
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            stripes[stripe] = new IntIndex<>();
+        }
+    }
+
+    int allocateId() {
+        return nextId.getAndIncrement();
+    }
+
+    int getNextId() {
+        return nextId.get();
+    }
+
+    void setNextId(int id) {
+        nextId.set(id);
+    }
+
+    void register(int id, T entity) {
+        IntIndex<T> stripe = stripeOf(id);
+        synchronized (stripe) {
+            stripe.put(id, entity);
+        }
+        modifications.incrementAndGet();
+    }
+
+    /**
+     * Returns the entity with the given identifier, or {@code null} if none.
+     */
+    T get(int id) {
+        IntIndex<T> stripe = stripeOf(id);
+        synchronized (stripe) {
+            return stripe.get(id);
+        }
+    }
+
+    T remove(int id) {
+        IntIndex<T> stripe = stripeOf(id);
+        T removed;
+        synchronized (stripe) {
+            removed = stripe.remove(id);
+        }
+        if (removed != null) {
+            modifications.incrementAndGet();
+        }
+        return removed;
+    }
+
+    int[] ids() {
+        return sortedIds().ids.clone();
+    }
+
+    /**
+     * Returns the live entities in identifier order.
+     */
+    List<T> values() {
+        int[] ids = sortedIds().ids;
+        List<T> values = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            T entity = get(id);
+            if (entity != null) {
+                values.add(entity);
+            }
+        }
+        return values;
+    }
+
+    void clear() {
+        for (IntIndex<T> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+        modifications.incrementAndGet();
+        nextId.set(1);
+    }
+
+    /**
+     * Replaces the contents with previously saved entities and counter.
+     */
+    void restore(List<T> saved, ToIntFunction<T> idOf, int savedNextId) {
+        clear();
+        for (T entity : saved) {
+            int id = idOf.applyAsInt(entity);
+            IntIndex<T> stripe = stripeOf(id);
+            synchronized (stripe) {
+                stripe.put(id, entity);
+            }
+        }
+        modifications.incrementAndGet();
+        nextId.set(savedNextId);
+    }
+
+    private IntIndex<T> stripeOf(int id) {
+        return stripes[id & (STRIPES - 1)];
+    }
+
+    /**
+     * Returns the cached identifiers, collecting them again if the stripes
+     * changed since. The version is read before collecting, so a change made
+     * meanwhile leaves the new cache already out of date rather than wrong.
+     */
+    private SortedIds sortedIds() {
+        long version = modifications.get();
+        SortedIds cached = sortedIds;
+        if (cached != null && cached.version == version) {
+            return cached;
+        }
+        int[] ids = new int[0];
+        int count = 0;
+        for (IntIndex<T> stripe : stripes) {
+            synchronized (stripe) {
+                if (count + stripe.size() > ids.length) {
+                    ids = Arrays.copyOf(ids, Math.max(count + stripe.size(), ids.length * 2));
+                }
+                count += stripe.copyKeys(ids, count);
+            }
+        }
+        int[] sorted = Arrays.copyOf(ids, count);
+        Arrays.sort(sorted);
+        cached = new SortedIds(version, sorted);
+        sortedIds = cached;
+        return cached;
+    }
+
+    private record SortedIds(long version, int[] ids) {
+    }
+}
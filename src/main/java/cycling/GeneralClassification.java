@@ -0,0 +1,169 @@
+package cycling;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incrementally maintained general classification of one race.
+ *
+ * <p>The adjusted elapsed times contributed by each stage are remembered with
+ * the stage's result version. A refresh re-reads only the stages whose
+ * results changed and applies the difference to the cumulative per-rider
+ * totals, so querying an unchanged race costs one version check per stage.</p>
+ *
+ * <p>Queries refresh the cache, so its methods are synchronized to let
+ * concurrent readers share one instance.</p>
+ */
+final class GeneralClassification {
+    private final Map<Stage, StageTimes> stageTimes = new HashMap<>();
+    private final IntIndex<RiderTotal> totals = new IntIndex<>();
+    private long refreshEpoch;
+    private int[] rankedRiderIds;
+    private long[] rankedTimes;
+
+    synchronized void refresh(List<Stage> stages) {
+        refreshEpoch++;
+        for (Stage stage : stages) {
+            StageTimes previous = stageTimes.get(stage);
+            if (previous != null && previous.version == stage.getResultsVersion()) {
+                previous.epoch = refreshEpoch;
+                continue;
+            }
+            StageScoring scoring = stage.getScoring();
+            StageTimes current = new StageTimes(stage.getResultsVersion(),
+                    scoring.getFinishOrder(), scoring.getAdjustedTimes());
+            current.epoch = refreshEpoch;
+            applyDelta(previous == null ? StageTimes.EMPTY : previous, current);
+            stageTimes.put(stage, current);
+        }
+
+        // Any entry not visited above belongs to a stage removed from the race.
+        if (stageTimes.size() > stages.size()) {
+            Iterator<StageTimes> iterator = stageTimes.values().iterator();
+            while (iterator.hasNext()) {
+                StageTimes stale = iterator.next();
+                if (stale.epoch != refreshEpoch) {
+                    applyDelta(stale, StageTimes.EMPTY);
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    synchronized int[] getRankedRiderIds() {
+        ensureRanked();
+        return rankedRiderIds.clone();
+    }
+
+    synchronized long[] getRankedTimes() {
+        ensureRanked();
+        return rankedTimes.clone();
+    }
+
+    /**
+     * Returns the IDs of at most {@code k} leading riders. A cached full
+     * ranking is reused; otherwise only the leaders are selected.
+     */
+    synchronized int[] getLeadingRiderIds(int k) {
+        if (rankedRiderIds != null) {
+            return Arrays.copyOf(rankedRiderIds, Math.min(k, rankedRiderIds.length));
+        }
+        int[] riderIds = new int[totals.size()];
+        long[] times = new long[totals.size()];
+        collectTotals(riderIds, times);
+        int[] leaders = BoundedSelection.top(times, riderIds, k);
+        for (int place = 0; place < leaders.length; place++) {
+            leaders[place] = riderIds[leaders[place]];
+        }
+        return leaders;
+    }
+
+    private void applyDelta(StageTimes previous, StageTimes current) {
+        IntIntIndex previousPositions = new IntIntIndex(previous.riderIds.length);
+        for (int position = 0; position < previous.riderIds.length; position++) {
+            previousPositions.put(previous.riderIds[position], position);
+        }
+        boolean[] retained = new boolean[previous.riderIds.length];
+        for (int position = 0; position < current.riderIds.length; position++) {
+            int riderId = current.riderIds[position];
+            int before = previousPositions.get(riderId, -1);
+            if (before < 0) {
+                adjust(riderId, current.times[position], 1);
+            } else {
+                retained[before] = true;
+                if (previous.times[before] != current.times[position]) {
+                    adjust(riderId, current.times[position] - previous.times[before], 0);
+                }
+            }
+        }
+        for (int position = 0; position < previous.riderIds.length; position++) {
+            if (!retained[position]) {
+                adjust(previous.riderIds[position], -previous.times[position], -1);
+            }
+        }
+    }
+
+    private void adjust(int riderId, long nanos, int stageCount) {
+        RiderTotal total = totals.get(riderId);
+        if (total == null) {
+            total = new RiderTotal();
+            totals.put(riderId, total);
+        }
+        total.nanos += nanos;
+        total.stageCount += stageCount;
+        if (total.stageCount == 0) {
+            totals.remove(riderId);
+        }
+        rankedRiderIds = null;
+    }
+
+    private void collectTotals(int[] riderIds, long[] times) {
+        int[] row = {0};
+        totals.forEach((riderId, total) -> {
+            riderIds[row[0]] = riderId;
+            times[row[0]++] = total.nanos;
+        });
+    }
+
+    private void ensureRanked() {
+        if (rankedRiderIds != null) {
+            return;
+        }
+        int[] riderIds = new int[totals.size()];
+        long[] times = new long[totals.size()];
+        collectTotals(riderIds, times);
+        int[] rows = RankingSort.order(times, riderIds);
+
+        int[] ranked = new int[rows.length];
+        long[] rankedNanos = new long[rows.length];
+        for (int position = 0; position < rows.length; position++) {
+            ranked[position] = riderIds[rows[position]];
+            rankedNanos[position] = times[rows[position]];
+        }
+        rankedTimes = rankedNanos;
+        rankedRiderIds = ranked;
+    }
+
+    private static final class StageTimes {
+        private static final StageTimes EMPTY = new StageTimes(0, new int[0], new long[0]);
+
+        private final int version;
+        private final int[] riderIds;
+        private final long[] times;
+        private long epoch;
+
+        private StageTimes(int version, int[] riderIds, long[] times) {
+            this.version = version;
+            this.riderIds = riderIds;
+            this.times = times;
+        }
+    }
+
+    private static final class RiderTotal {
+        private long nanos;
+        private int stageCount;
+    }
+}
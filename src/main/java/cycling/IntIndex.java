@@ -0,0 +1,160 @@
+package cycling;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash index from primitive {@code int} identifiers to values.
+ *
+ * <p>Keys are stored in a plain {@code int[]} and probed linearly, so lookups
+ * neither box the identifier nor allocate. Removal uses backward-shift deletion
+ * rather than tombstones, keeping probe sequences short after heavy churn.</p>
+ *
+ * @param <T> the indexed value type
+ */
+final class IntIndex<T> implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+
+    IntIndex() {
+        keys = new int[MINIMUM_CAPACITY];
+        values = new Object[MINIMUM_CAPACITY];
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (T) values[slot];
+            }
+        }
+        return null;
+    }
+
+    boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    T put(int key, T value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Indexed values cannot be null");
+        }
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                T previous = (T) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    T remove(int key) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                T removed = (T) values[slot];
+                deleteSlot(slot, mask);
+                size--;
+                return removed;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(EntryVisitor<? super T> visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != null) {
+                visitor.visit(keys[slot], (T) values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Copies the keys, in no particular order, into {@code target} from
+     * {@code offset} on and returns how many were copied.
+     */
+    int copyKeys(int[] target, int offset) {
+        int count = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != null) {
+                target[offset + count++] = keys[slot];
+            }
+        }
+        return count;
+    }
+
+    void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private void deleteSlot(int hole, int mask) {
+        int slot = (hole + 1) & mask;
+        while (values[slot] != null) {
+            int home = slot(keys[slot], mask);
+            // Shift the entry back only if the hole lies on its probe path.
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = keys[slot];
+                values[hole] = values[slot];
+                hole = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        values[hole] = null;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int index = 0; index < oldKeys.length; index++) {
+            if (oldValues[index] != null) {
+                int slot = slot(oldKeys[index], mask);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[index];
+                values[slot] = oldValues[index];
+            }
+        }
+    }
+
+    private static int slot(int key, int mask) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    @FunctionalInterface
+    interface EntryVisitor<T> {
+        void visit(int key, T value);
+    }
+}
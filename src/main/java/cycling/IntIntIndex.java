@@ -0,0 +1,178 @@
+package cycling;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash index from primitive {@code int} keys to primitive
+ * {@code int} values.
+ *
+ * <p>The probing and deletion scheme mirrors {@link IntIndex}; occupancy is
+ * tracked separately so that every {@code int} is a valid value. It is used
+ * for row positions and point totals, where boxing either side would cost an
+ * allocation per entry.</p>
+ */
+final class IntIntIndex implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+
+    IntIntIndex() {
+        this(MINIMUM_CAPACITY);
+    }
+
+    IntIntIndex(int expectedSize) {
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity * 3 < expectedSize * 4) {
+            capacity *= 2;
+        }
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int key, int defaultValue) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); used[slot]; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return defaultValue;
+    }
+
+    boolean containsKey(int key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); used[slot]; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void put(int key, int value) {
+        int slot = findOrInsert(key);
+        values[slot] = value;
+    }
+
+    /**
+     * Adds {@code delta} to the value of {@code key}, treating an absent key as
+     * zero, and returns the new value.
+     */
+    int addTo(int key, int delta) {
+        int slot = findOrInsert(key);
+        values[slot] += delta;
+        return values[slot];
+    }
+
+    boolean remove(int key) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                deleteSlot(slot, mask);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Adds every value of {@code other} to this index, key by key.
+     */
+    void addAll(IntIntIndex other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.used[slot]) {
+                addTo(other.keys[slot], other.values[slot]);
+            }
+        }
+    }
+
+    IntIntIndex copy() {
+        IntIntIndex copy = new IntIntIndex();
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.used = used.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private int findOrInsert(int key) {
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = 0;
+        used[slot] = true;
+        size++;
+        return slot;
+    }
+
+    private void deleteSlot(int hole, int mask) {
+        int slot = (hole + 1) & mask;
+        while (used[slot]) {
+            int home = slot(keys[slot], mask);
+            // Shift the entry back only if the hole lies on its probe path.
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = keys[slot];
+                values[hole] = values[slot];
+                hole = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[hole] = false;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        int mask = capacity - 1;
+        for (int index = 0; index < oldKeys.length; index++) {
+            if (oldUsed[index]) {
+                int slot = slot(oldKeys[index], mask);
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[index];
+                values[slot] = oldValues[index];
+                used[slot] = true;
+            }
+        }
+    }
+
+    private static int slot(int key, int mask) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
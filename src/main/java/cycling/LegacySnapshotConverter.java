@@ -0,0 +1,45 @@
+package cycling;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Rewrites portal files saved with Java serialization in the binary snapshot
+ * format.
+ *
+ * <p>{@link CyclingPortalImpl#loadCyclingPortal(String)} still reads legacy
+ * files, so converting is optional; it makes later loads faster and removes
+ * the dependency on the serialized form of the domain classes. Run it as</p>
+ *
+ * <pre>
+ * java -cp target/classes cycling.LegacySnapshotConverter legacy.ser portal.bin
+ * </pre>
+ */
+public final class LegacySnapshotConverter {
+    private LegacySnapshotConverter() {
+    }
+
+    /**
+     * Converts one file. A file that is already in the binary format is
+     * copied through a decode and re-encode.
+     *
+     * @param source the saved portal to read
+     * @param target the file to write; it may be {@code source} itself
+     * @throws IOException            if either file cannot be accessed or
+     *                                {@code source} is not a saved portal
+     * @throws ClassNotFoundException if a legacy file refers to an unknown
+     *                                class
+     */
+    public static void convert(Path source, Path target)
+            throws IOException, ClassNotFoundException {
+        SnapshotFormat.write(target, SnapshotFormat.read(source));
+    }
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        if (args.length != 2) {
+            System.err.println("Usage: LegacySnapshotConverter <legacy file> <target file>");
+            System.exit(2);
+        }
+        convert(Path.of(args[0]), Path.of(args[1]));
+    }
+}
@@ -0,0 +1,314 @@
+package cycling;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of portal mutations.
+ *
+ * <p>Each successful mutation is appended as one record: its payload length,
+ * a sequence number, an operation code, the payload and a CRC-32 of the
+ * sequence number, operation and payload. Appending only encodes the record
+ * into an in-memory buffer. A background committer thread writes whatever has
+ * accumulated and forces it to disk in one batch, waiting up to the commit
+ * interval for more records to join, so many mutations share one
+ * {@code fsync}. A crash therefore loses at most the records of the current
+ * batch; {@link #sync()} waits until everything appended is durable.</p>
+ *
+ * <p>Replay stops at the first incomplete or corrupt record, which is what a
+ * crash in the middle of a write leaves behind, and that tail is cut off
+ * before new records are appended. Records carry the payloads that
+ * {@link CyclingPortalImpl} writes and replays; created entities record their
+ * identifier so that replay assigns the same ones.</p>
+ */
+final class PortalJournal implements Closeable {
+    static final byte CREATE_RACE = 1;
+    static final byte REMOVE_RACE = 2;
+    static final byte ADD_STAGE = 3;
+    static final byte REMOVE_STAGE = 4;
+    static final byte ADD_CHECKPOINT = 5;
+    static final byte REMOVE_CHECKPOINT = 6;
+    static final byte CONCLUDE_PREPARATION = 7;
+    static final byte CREATE_TEAM = 8;
+    static final byte REMOVE_TEAM = 9;
+    static final byte CREATE_RIDER = 10;
+    static final byte REMOVE_RIDER = 11;
+    static final byte REGISTER_RESULT = 12;
+    static final byte REGISTER_RESULTS = 13;
+    static final byte DELETE_RESULT = 14;
+    static final byte ERASE = 15;
+
+    /**
+     * How long the committer waits for further records before forcing a
+     * batch, in microseconds; overridden by the system property
+     * {@code cycling.journalCommitIntervalMicros}.
+     */
+    static final long COMMIT_INTERVAL_MICROS =
+            Long.getLong("cycling.journalCommitIntervalMicros", 2_000L);
+
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES + 1;
+    private static final int CHECKSUM_BYTES = Integer.BYTES;
+
+    /**
+     * Applies one replayed record; the payload buffer is positioned at its
+     * start.
+     */
+    @FunctionalInterface
+    interface Replayer {
+        void apply(byte operation, ByteBuffer payload) throws Exception;
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long commitIntervalNanos;
+    private final Thread committer;
+    private final CRC32 checksum = new CRC32();
+    private BinaryWriter pending = new BinaryWriter(64 * 1024);
+    private BinaryWriter spare = new BinaryWriter(64 * 1024);
+    private long lastSequence;
+    private long durableSequence;
+    private boolean syncRequested;
+    private boolean closed;
+    private IOException failure;
+
+    private PortalJournal(Path file, FileChannel channel, long lastSequence,
+            long commitIntervalNanos) {
+        this.file = file;
+        this.channel = channel;
+        this.lastSequence = lastSequence;
+        this.durableSequence = lastSequence;
+        this.commitIntervalNanos = commitIntervalNanos;
+        committer = new Thread(this::commitLoop, "cycling-journal-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Opens the journal for appending, first replaying every intact record
+     * numbered after {@code afterSequence}. The file is created if missing.
+     *
+     * @param file          the journal file
+     * @param afterSequence the last sequence number already reflected in the
+     *                      state being replayed onto
+     * @param replayer      receives each record to replay
+     * @return the open journal, continuing the sequence
+     * @throws IOException if the file cannot be accessed or a record cannot be
+     *                     applied
+     */
+    static PortalJournal open(Path file, long afterSequence, Replayer replayer)
+            throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long lastSequence = afterSequence;
+            ByteBuffer contents = readFully(channel);
+            CRC32 checksum = new CRC32();
+            int end = 0;
+            while (contents.remaining() >= HEADER_BYTES + CHECKSUM_BYTES) {
+                int start = contents.position();
+                int payloadLength = contents.getInt();
+                if (payloadLength < 0 || payloadLength
+                        > contents.remaining() - Long.BYTES - 1 - CHECKSUM_BYTES) {
+                    break;
+                }
+                checksum.reset();
+                checksum.update(contents.slice(start + Integer.BYTES,
+                        Long.BYTES + 1 + payloadLength));
+                long sequence = contents.getLong();
+                byte operation = contents.get();
+                ByteBuffer payload = contents.slice(contents.position(), payloadLength);
+                contents.position(contents.position() + payloadLength);
+                if (contents.getInt() != (int) checksum.getValue()) {
+                    break;
+                }
+                end = contents.position();
+                if (sequence > afterSequence) {
+                    try {
+                        replayer.apply(operation, payload);
+                    } catch (Exception exception) {
+                        throw new IOException("Journal record " + sequence
+                                + " cannot be applied: " + exception.getMessage(), exception);
+                    }
+                }
+                lastSequence = Math.max(lastSequence, sequence);
+            }
+            // Cut off a record torn by a crash so that appends follow intact data.
+            channel.truncate(end);
+            channel.position(end);
+            return new PortalJournal(file, channel, lastSequence,
+                    TimeUnit.MICROSECONDS.toNanos(COMMIT_INTERVAL_MICROS));
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel) throws IOException {
+        if (channel.size() > Integer.MAX_VALUE) {
+            throw new IOException("The journal is too large; save a snapshot to truncate it");
+        }
+        ByteBuffer contents = ByteBuffer.allocate((int) channel.size());
+        while (contents.hasRemaining() && channel.read(contents, contents.position()) >= 0) {
+            // Keep reading until the buffer is full or the file ends.
+        }
+        return contents.flip();
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Appends one record. Only the encoding happens on the calling thread.
+     *
+     * @throws UncheckedIOException if an earlier batch could not be written;
+     *                              the journal is unusable from then on
+     */
+    synchronized void append(byte operation, Consumer<BinaryWriter> payload) {
+        if (failure != null) {
+            throw new UncheckedIOException("The journal can no longer be written", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("The journal is closed");
+        }
+        int start = pending.position();
+        pending.putInt(0);
+        pending.putLong(lastSequence + 1);
+        pending.putByte(operation);
+        try {
+            payload.accept(pending);
+        } catch (RuntimeException exception) {
+            pending.truncate(start);
+            throw exception;
+        }
+        int payloadLength = pending.position() - start - HEADER_BYTES;
+        pending.putInt(start, payloadLength);
+        checksum.reset();
+        checksum.update(pending.view(start + Integer.BYTES, Long.BYTES + 1 + payloadLength));
+        pending.putInt((int) checksum.getValue());
+        lastSequence++;
+        if (start == 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Blocks until every record appended so far is on disk.
+     *
+     * @throws IOException if a batch could not be written
+     */
+    synchronized void sync() throws IOException {
+        long target = lastSequence;
+        syncRequested = true;
+        notifyAll();
+        try {
+            while (durableSequence < target && failure == null) {
+                wait();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while syncing the journal");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Drops every record after making sure none is still pending. Called once
+     * a snapshot includes them all; numbering continues where it left off.
+     */
+    void truncate() throws IOException {
+        sync();
+        synchronized (this) {
+            channel.truncate(0);
+            channel.position(0);
+        }
+    }
+
+    /**
+     * Commits the remaining records and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing the journal");
+        } finally {
+            channel.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void commitLoop() {
+        while (true) {
+            BinaryWriter batch;
+            long batchSequence;
+            synchronized (this) {
+                try {
+                    while (pending.position() == 0 && !closed) {
+                        wait();
+                    }
+                    if (pending.position() == 0) {
+                        return;
+                    }
+                    // Give concurrent writers a moment to join this batch.
+                    long deadline = System.nanoTime() + commitIntervalNanos;
+                    long remaining = commitIntervalNanos;
+                    while (!closed && !syncRequested && remaining > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                        remaining = deadline - System.nanoTime();
+                    }
+                } catch (InterruptedException exception) {
+                    return;
+                }
+                batch = pending;
+                pending = spare;
+                spare = null;
+                batchSequence = lastSequence;
+                syncRequested = false;
+            }
+
+            try {
+                ByteBuffer bytes = batch.written();
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false);
+            } catch (IOException exception) {
+                synchronized (this) {
+                    failure = exception;
+                    notifyAll();
+                }
+                return;
+            }
+            batch.clear();
+            synchronized (this) {
+                spare = batch;
+                durableSequence = batchSequence;
+                notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package cycling;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Read-only, point-in-time view of a portal returned by
+ * {@link CyclingPortal#snapshot()}.
+ *
+ * <p>The view delegates to a private copy of the portal's entities that
+ * nothing else can change. Stage results are shared with the source portal
+ * copy-on-write, so taking a snapshot does not copy result data, and reading
+ * one needs no lock. Methods that would change the portal throw
+ * {@link UnsupportedOperationException}.</p>
+ */
+final class PortalSnapshot implements CyclingPortal {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final CyclingPortalImpl delegate;
+
+    PortalSnapshot(CyclingPortalImpl delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public int[] getRaceIds() {
+        return delegate.getRaceIds();
+    }
+
+    @Override
+    public int createRace(String name, String description)
+            throws IllegalNameException, InvalidNameException {
+        throw readOnly();
+    }
+
+    @Override
+    public String viewRaceDetails(int raceId) throws IDNotRecognisedException {
+        return delegate.viewRaceDetails(raceId);
+    }
+
+    @Override
+    public void removeRaceById(int raceId) throws IDNotRecognisedException {
+        throw readOnly();
+    }
+
+    @Override
+    public int getNumberOfStages(int raceId) throws IDNotRecognisedException {
+        return delegate.getNumberOfStages(raceId);
+    }
+
+    @Override
+    public int addStageToRace(int raceId, String stageName, String description,
+            double length, LocalDateTime startTime, StageType type)
+            throws IDNotRecognisedException, IllegalNameException,
+            InvalidNameException, InvalidLengthException {
+        throw readOnly();
+    }
+
+    @Override
+    public int[] getRaceStages(int raceId) throws IDNotRecognisedException {
+        return delegate.getRaceStages(raceId);
+    }
+
+    @Override
+    public double getStageLength(int stageId) throws IDNotRecognisedException {
+        return delegate.getStageLength(stageId);
+    }
+
+    @Override
+    public void removeStageById(int stageId) throws IDNotRecognisedException {
+        throw readOnly();
+    }
+
+    @Override
+    public int addCategorizedClimbToStage(int stageId, Double location,
+            CheckpointType type, Double averageGradient, Double length)
+            throws IDNotRecognisedException, InvalidLocationException,
+            InvalidStageStateException, InvalidStageTypeException {
+        throw readOnly();
+    }
+
+    @Override
+    public int addIntermediateSprintToStage(int stageId, double location)
+            throws IDNotRecognisedException, InvalidLocationException,
+            InvalidStageStateException, InvalidStageTypeException {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeCheckpoint(int checkpointId)
+            throws IDNotRecognisedException, InvalidStageStateException {
+        throw readOnly();
+    }
+
+    @Override
+    public void concludeStagePreparation(int stageId)
+            throws IDNotRecognisedException, InvalidStageStateException {
+        throw readOnly();
+    }
+
+    @Override
+    public int[] getStageCheckpoints(int stageId) throws IDNotRecognisedException {
+        return delegate.getStageCheckpoints(stageId);
+    }
+
+    @Override
+    public int createTeam(String name, String description)
+            throws IllegalNameException, InvalidNameException {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeTeam(int teamId) throws IDNotRecognisedException {
+        throw readOnly();
+    }
+
+    @Override
+    public int[] getTeams() {
+        return delegate.getTeams();
+    }
+
+    @Override
+    public int[] getTeamRiders(int teamId) throws IDNotRecognisedException {
+        return delegate.getTeamRiders(teamId);
+    }
+
+    @Override
+    public int createRider(int teamID, String name, int yearOfBirth)
+            throws IDNotRecognisedException, IllegalArgumentException {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeRider(int riderId) throws IDNotRecognisedException {
+        throw readOnly();
+    }
+
+    @Override
+    public void registerRiderResultsInStage(int stageId, int riderId,
+            LocalTime... checkpointTimes)
+            throws IDNotRecognisedException, DuplicatedResultException,
+            InvalidCheckpointTimesException, InvalidStageStateException {
+        throw readOnly();
+    }
+
+    @Override
+    public void registerStageResultsBatch(int stageId, int[] riderIds, LocalTime[][] times)
+            throws IDNotRecognisedException, DuplicatedResultException,
+            InvalidCheckpointTimesException, InvalidStageStateException {
+        throw readOnly();
+    }
+
+    @Override
+    public LocalTime[] getRiderResultsInStage(int stageId, int riderId)
+            throws IDNotRecognisedException {
+        return delegate.getRiderResultsInStage(stageId, riderId);
+    }
+
+    @Override
+    public LocalTime getRiderAdjustedElapsedTimeInStage(int stageId, int riderId)
+            throws IDNotRecognisedException {
+        return delegate.getRiderAdjustedElapsedTimeInStage(stageId, riderId);
+    }
+
+    @Override
+    public void deleteRiderResultsInStage(int stageId, int riderId)
+            throws IDNotRecognisedException {
+        throw readOnly();
+    }
+
+    @Override
+    public int[] getRidersRankInStage(int stageId) throws IDNotRecognisedException {
+        return delegate.getRidersRankInStage(stageId);
+    }
+
+    @Override
+    public LocalTime[] getRankedAdjustedElapsedTimesInStage(int stageId)
+            throws IDNotRecognisedException {
+        return delegate.getRankedAdjustedElapsedTimesInStage(stageId);
+    }
+
+    @Override
+    public int[] getRidersPointsInStage(int stageId) throws IDNotRecognisedException {
+        return delegate.getRidersPointsInStage(stageId);
+    }
+
+    @Override
+    public int[] getRidersMountainPointsInStage(int stageId)
+            throws IDNotRecognisedException {
+        return delegate.getRidersMountainPointsInStage(stageId);
+    }
+
+    @Override
+    public void eraseCyclingPortal() {
+        throw readOnly();
+    }
+
+    @Override
+    public void saveCyclingPortal(String filename) throws IOException {
+        delegate.saveCyclingPortal(filename);
+    }
+
+    @Override
+    public void loadCyclingPortal(String filename) throws IOException, ClassNotFoundException {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeRaceByName(String name) throws NameNotRecognisedException {
+        throw readOnly();
+    }
+
+    @Override
+    public int getRaceIdByName(String name) throws NameNotRecognisedException {
+        return delegate.getRaceIdByName(name);
+    }
+
+    @Override
+    public int getStageIdByName(String name) throws NameNotRecognisedException {
+        return delegate.getStageIdByName(name);
+    }
+
+    @Override
+    public int getTeamIdByName(String name) throws NameNotRecognisedException {
+        return delegate.getTeamIdByName(name);
+    }
+
+    @Override
+    public int[] getRidersGeneralClassificationRank(int raceId)
+            throws IDNotRecognisedException {
+        return delegate.getRidersGeneralClassificationRank(raceId);
+    }
+
+    @Override
+    public LocalTime[] getGeneralClassificationTimesInRace(int raceId)
+            throws IDNotRecognisedException {
+        return delegate.getGeneralClassificationTimesInRace(raceId);
+    }
+
+    @Override
+    public int[] getRidersPointsInRace(int raceId) throws IDNotRecognisedException {
+        return delegate.getRidersPointsInRace(raceId);
+    }
+
+    @Override
+    public int[] getRidersMountainPointsInRace(int raceId)
+            throws IDNotRecognisedException {
+        return delegate.getRidersMountainPointsInRace(raceId);
+    }
+
+    @Override
+    public int[] getRidersPointClassificationRank(int raceId)
+            throws IDNotRecognisedException {
+        return delegate.getRidersPointClassificationRank(raceId);
+    }
+
+    @Override
+    public int[] getRidersMountainPointClassificationRank(int raceId)
+            throws IDNotRecognisedException {
+        return delegate.getRidersMountainPointClassificationRank(raceId);
+    }
+
+    @Override
+    public RaceClassifications getRaceClassifications(int raceId)
+            throws IDNotRecognisedException {
+        return delegate.getRaceClassifications(raceId);
+    }
+
+    @Override
+    public int[] getTopRidersInStage(int stageId, int k) throws IDNotRecognisedException {
+        return delegate.getTopRidersInStage(stageId, k);
+    }
+
+    @Override
+    public int[] getTopRidersInRace(int raceId, int k) throws IDNotRecognisedException {
+        return delegate.getTopRidersInRace(raceId, k);
+    }
+
+    @Override
+    public CyclingPortal snapshot() {
+        return this;
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Portal snapshots are read-only");
+    }
+}
@@ -17,6 +17,7 @@ public final class Race implements Serializable {
     private final String raceName;
     private final String raceDescription;
     private final List<Stage> stages = new ArrayList<>();
+    private transient GeneralClassification generalClassification;
 
     Race(int raceID, String raceName, String raceDescription) {
         this.raceID = raceID;
@@ -48,6 +49,13 @@ public final class Race implements Serializable {
         stages.remove(stage);
     }
 
+    synchronized GeneralClassification getGeneralClassification() {
+        if (generalClassification == null) {
+            generalClassification = new GeneralClassification();
+        }
+        return generalClassification;
+    }
+
     double calculateTotalLength() {
         return stages.stream().mapToDouble(Stage::getStageLength).sum();
     }
@@ -0,0 +1,78 @@
+package cycling;
+
+import java.time.LocalTime;
+
+/**
+ * An immutable set of the general, points and mountain classifications of one
+ * race, computed together from a single pass over its stages.
+ *
+ * <p>Each accessor returns a fresh copy and matches the corresponding
+ * {@link CyclingPortal} race query.</p>
+ */
+public final class RaceClassifications {
+    private final int raceID;
+    private final int[] generalClassificationRank;
+    private final LocalTime[] generalClassificationTimes;
+    private final int[] points;
+    private final int[] mountainPoints;
+    private final int[] pointsClassificationRank;
+    private final int[] mountainPointsClassificationRank;
+
+    RaceClassifications(int raceID, int[] generalClassificationRank,
+            LocalTime[] generalClassificationTimes, int[] points, int[] mountainPoints,
+            int[] pointsClassificationRank, int[] mountainPointsClassificationRank) {
+        this.raceID = raceID;
+        this.generalClassificationRank = generalClassificationRank.clone();
+        this.generalClassificationTimes = generalClassificationTimes.clone();
+        this.points = points.clone();
+        this.mountainPoints = mountainPoints.clone();
+        this.pointsClassificationRank = pointsClassificationRank.clone();
+        this.mountainPointsClassificationRank = mountainPointsClassificationRank.clone();
+    }
+
+    public int getRaceID() {
+        return raceID;
+    }
+
+    /**
+     * @see CyclingPortal#getRidersGeneralClassificationRank(int)
+     */
+    public int[] getGeneralClassificationRank() {
+        return generalClassificationRank.clone();
+    }
+
+    /**
+     * @see CyclingPortal#getGeneralClassificationTimesInRace(int)
+     */
+    public LocalTime[] getGeneralClassificationTimes() {
+        return generalClassificationTimes.clone();
+    }
+
+    /**
+     * @see CyclingPortal#getRidersPointsInRace(int)
+     */
+    public int[] getPoints() {
+        return points.clone();
+    }
+
+    /**
+     * @see CyclingPortal#getRidersMountainPointsInRace(int)
+     */
+    public int[] getMountainPoints() {
+        return mountainPoints.clone();
+    }
+
+    /**
+     * @see CyclingPortal#getRidersPointClassificationRank(int)
+     */
+    public int[] getPointsClassificationRank() {
+        return pointsClassificationRank.clone();
+    }
+
+    /**
+     * @see CyclingPortal#getRidersMountainPointClassificationRank(int)
+     */
+    public int[] getMountainPointsClassificationRank() {
+        return mountainPointsClassificationRank.clone();
+    }
+}
@@ -0,0 +1,115 @@
+package cycling;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Orders the rows of a field ascending by time, breaking ties by rider ID.
+ *
+ * <p>Small fields use a comparator sort. Fields of at least
+ * {@link #DEFAULT_RADIX_THRESHOLD} rows (overridable with the
+ * {@code cycling.radixRankingThreshold} system property) switch to a packed
+ * mode: rows are first numbered by rider ID, then each time is packed with
+ * that number into one {@code long} key, and the keys are sorted with an LSD
+ * radix sort, or {@link Arrays#parallelSort(long[])} for very large fields.
+ * Both modes produce the same order.</p>
+ */
+final class RankingSort {
+    static final int DEFAULT_RADIX_THRESHOLD = 2048;
+
+    private static final int RADIX_THRESHOLD =
+            Integer.getInteger("cycling.radixRankingThreshold", DEFAULT_RADIX_THRESHOLD);
+    private static final int PARALLEL_THRESHOLD = 1 << 18;
+    private static final int DIGIT_BITS = 16;
+    private static final int DIGIT_MASK = (1 << DIGIT_BITS) - 1;
+
+    private RankingSort() {
+    }
+
+    static int[] order(long[] times, int[] riderIds) {
+        return order(times, riderIds, RADIX_THRESHOLD);
+    }
+
+    /**
+     * Returns row indices in ranked order. Negative times, or times too wide to
+     * pack beside the row number, always take the comparator path.
+     *
+     * @param radixThreshold the field size from which packed keys are used
+     */
+    static int[] order(long[] times, int[] riderIds, int radixThreshold) {
+        int size = times.length;
+        int rankBits = 32 - Integer.numberOfLeadingZeros(Math.max(1, size - 1));
+        long maximumTime = 0L;
+        long minimumTime = 0L;
+        for (long time : times) {
+            maximumTime = Math.max(maximumTime, time);
+            minimumTime = Math.min(minimumTime, time);
+        }
+        int timeBits = 64 - Long.numberOfLeadingZeros(maximumTime);
+        if (size < radixThreshold || minimumTime < 0 || timeBits + rankBits > 63) {
+            return comparatorOrder(times, riderIds);
+        }
+
+        // Number rows by rider ID so the packed key's low bits break ties.
+        long[] keys = new long[size];
+        for (int row = 0; row < size; row++) {
+            keys[row] = (long) riderIds[row] << 32 | row;
+        }
+        Arrays.sort(keys);
+        int[] rowsByRank = new int[size];
+        for (int rank = 0; rank < size; rank++) {
+            rowsByRank[rank] = (int) keys[rank];
+            keys[rank] = times[rowsByRank[rank]] << rankBits | rank;
+        }
+
+        if (size >= PARALLEL_THRESHOLD) {
+            Arrays.parallelSort(keys);
+        } else {
+            radixSort(keys, timeBits + rankBits);
+        }
+        long rankMask = (1L << rankBits) - 1;
+        int[] rows = new int[size];
+        for (int position = 0; position < size; position++) {
+            rows[position] = rowsByRank[(int) (keys[position] & rankMask)];
+        }
+        return rows;
+    }
+
+    private static int[] comparatorOrder(long[] times, int[] riderIds) {
+        Integer[] rows = new Integer[times.length];
+        Arrays.setAll(rows, row -> row);
+        Arrays.sort(rows, Comparator
+                .comparingLong((Integer row) -> times[row])
+                .thenComparingInt(row -> riderIds[row]));
+        return Arrays.stream(rows).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Sorts non-negative keys whose significant bits fit in {@code keyBits},
+     * one 16-bit digit per pass from the least significant.
+     */
+    private static void radixSort(long[] keys, int keyBits) {
+        long[] buffer = new long[keys.length];
+        int[] counts = new int[DIGIT_MASK + 2];
+        long[] source = keys;
+        long[] target = buffer;
+        for (int shift = 0; shift < keyBits; shift += DIGIT_BITS) {
+            Arrays.fill(counts, 0);
+            for (long key : source) {
+                counts[(int) (key >>> shift & DIGIT_MASK) + 1]++;
+            }
+            for (int digit = 0; digit <= DIGIT_MASK; digit++) {
+                counts[digit + 1] += counts[digit];
+            }
+            for (long key : source) {
+                target[counts[(int) (key >>> shift & DIGIT_MASK)]++] = key;
+            }
+            long[] swap = source;
+            source = target;
+            target = swap;
+        }
+        if (source != keys) {
+            System.arraycopy(source, 0, keys, 0, keys.length);
+        }
+    }
+}
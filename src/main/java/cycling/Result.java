@@ -1,25 +1,52 @@
 package cycling;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serial;
 import java.io.Serializable;
+import java.time.Duration;
 import java.time.LocalTime;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * A rider's ordered checkpoint times for one stage.
+ *
+ * <p>Times are held as primitive nanosecond-of-day values; the
+ * {@link LocalTime} list returned by {@link #getCheckpointTimes()} is a
+ * read-only view decoded on access. The serialized form is still the one of
+ * earlier versions, which stored the times as a {@code List<LocalTime>}, so
+ * that portals saved by them remain readable.</p>
  */
 public final class Result implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
 
-    private final Rider rider;
-    private final Stage stage;
-    private final List<LocalTime> checkpointTimes;
+    @Serial
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("rider", Rider.class),
+        new ObjectStreamField("stage", Stage.class),
+        new ObjectStreamField("checkpointTimes", List.class)
+    };
+
+    private static final long NANOS_PER_DAY = Duration.ofDays(1).toNanos();
 
-    Result(Rider rider, Stage stage, List<LocalTime> checkpointTimes) {
+    // Assigned by readObject as well as the constructor, hence not final.
+    private Rider rider;
+    private Stage stage;
+    private long[] checkpointTimes;
+
+    Result(Rider rider, Stage stage, LocalTime[] checkpointTimes) {
         this.rider = rider;
         this.stage = stage;
-        this.checkpointTimes = List.copyOf(checkpointTimes);
+        this.checkpointTimes = new long[checkpointTimes.length];
+        for (int index = 0; index < checkpointTimes.length; index++) {
+            this.checkpointTimes[index] = checkpointTimes[index].toNanoOfDay();
+        }
     }
 
     public Rider getRider() {
@@ -31,6 +58,53 @@ public final class Result implements Serializable {
     }
 
     public List<LocalTime> getCheckpointTimes() {
-        return checkpointTimes;
+        return new CheckpointTimes();
+    }
+
+    /**
+     * Elapsed nanoseconds from the start to the finish, wrapping past midnight.
+     */
+    long getElapsedNanos() {
+        long elapsed = checkpointTimes[checkpointTimes.length - 1] - checkpointTimes[0];
+        return elapsed < 0 ? elapsed + NANOS_PER_DAY : elapsed;
+    }
+
+    @Serial
+    private void writeObject(ObjectOutputStream output) throws IOException {
+        ObjectOutputStream.PutField fields = output.putFields();
+        fields.put("rider", rider);
+        fields.put("stage", stage);
+        fields.put("checkpointTimes", List.copyOf(getCheckpointTimes()));
+        output.writeFields();
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = input.readFields();
+        rider = (Rider) fields.get("rider", null);
+        stage = (Stage) fields.get("stage", null);
+        List<?> times = (List<?>) fields.get("checkpointTimes", null);
+        if (times == null) {
+            throw new InvalidObjectException("A result has no checkpoint times");
+        }
+        checkpointTimes = new long[times.size()];
+        for (int index = 0; index < checkpointTimes.length; index++) {
+            if (!(times.get(index) instanceof LocalTime time)) {
+                throw new InvalidObjectException("A checkpoint time is not a LocalTime");
+            }
+            checkpointTimes[index] = time.toNanoOfDay();
+        }
+    }
+
+    private final class CheckpointTimes extends AbstractList<LocalTime> implements RandomAccess {
+        @Override
+        public LocalTime get(int index) {
+            return LocalTime.ofNanoOfDay(checkpointTimes[index]);
+        }
+
+        @Override
+        public int size() {
+            return checkpointTimes.length;
+        }
     }
 }
@@ -1,7 +1,12 @@
 package cycling;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serial;
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  * A rider registered to a team.
@@ -14,6 +19,8 @@ public final class Rider implements Serializable {
     private final String riderName;
     private final int yearOfBirth;
     private final Team team;
+    // Derived from the stages' results, so it is relinked after loading.
+    private transient Set<Stage> resultStages = new LinkedHashSet<>();
 
     Rider(int riderID, String riderName, int yearOfBirth, Team team) {
         this.riderID = riderID;
@@ -37,4 +44,29 @@ public final class Rider implements Serializable {
     public Team getTeam() {
         return team;
     }
+
+    /**
+     * Stages in which this rider currently has a registered result. Maintained
+     * by {@link Stage} so that rider removal only visits the affected stages.
+     * Updates are synchronized because results for one rider may be registered
+     * in several stages at once; the view must only be iterated while no
+     * results are being registered.
+     */
+    Set<Stage> getResultStages() {
+        return Collections.unmodifiableSet(resultStages);
+    }
+
+    synchronized void addResultStage(Stage stage) {
+        resultStages.add(stage);
+    }
+
+    synchronized void removeResultStage(Stage stage) {
+        resultStages.remove(stage);
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+        resultStages = new LinkedHashSet<>();
+    }
 }
@@ -0,0 +1,902 @@
+package cycling;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import cycling.CyclingPortalImpl.PortalState;
+
+/**
+ * Versioned binary file format of a saved portal.
+ *
+ * <p>A file starts with a magic number, the format version and the five ID
+ * counters, followed by a random identifier of the snapshot, length-prefixed
+ * sections of teams, riders, races, stages, checkpoints and results, in that
+ * order, and finally the sequence number of the last {@link PortalJournal}
+ * record the snapshot includes. A section is a tag byte, the payload length
+ * in bytes and the payload, which begins with its entry count. Entities refer
+ * to their owner by ID, so decoding is one forward pass without recursion,
+ * and sections with an unknown tag are skipped. Riders, stages and
+ * checkpoints are written in their owner's order, which decoding reproduces
+ * by appending.</p>
+ *
+ * <p>Result times are stored column by column, as {@link StageResults} holds
+ * them. Version 1 wrote them as plain {@code long}s. Since version 2 each
+ * stage stores one reference start time and the largest power-of-ten unit,
+ * down to a nanosecond, that divides all of its times. Every time is then a
+ * zig-zag variable-length delta from the rider's previous timing point, or
+ * from the reference for the start. Riders finish close together, so when
+ * that is smaller the deltas are further taken relative to the previous row
+ * in the same column. Times recorded to the second or millisecond typically
+ * need one to three bytes instead of eight. Rider IDs are packed as deltas
+ * from the previous row too.</p>
+ *
+ * <p>A delta snapshot has its own magic number, so it is never mistaken for
+ * a complete portal. In place of the identifier it names its base snapshot
+ * and lists the teams and races removed since; its entity sections hold only
+ * the teams and races that changed, each complete with its riders or its
+ * stages, checkpoints and results. Decoding a delta reads its sections first
+ * and then those of the base, skipping every base entity the delta removes
+ * or replaces.</p>
+ *
+ * <p>Enum constants are stored by ordinal, so new constants may only be
+ * appended. Files saved by earlier versions, which wrote the portal state
+ * with {@link java.io.ObjectOutputStream}, are recognised by the
+ * serialization stream magic and still read.</p>
+ */
+final class SnapshotFormat {
+    static final int MAGIC = 0x43594350;
+    static final int DELTA_MAGIC = 0x43594344;
+    static final short VERSION = 2;
+
+    private static final short SERIALIZATION_MAGIC = (short) 0xACED;
+
+    private static final byte TEAMS = 1;
+    private static final byte RIDERS = 2;
+    private static final byte RACES = 3;
+    private static final byte STAGES = 4;
+    private static final byte CHECKPOINTS = 5;
+    private static final byte RESULTS = 6;
+    private static final byte JOURNAL = 7;
+    private static final byte SNAPSHOT = 8;
+    private static final byte DELTA = 9;
+
+    private static final long NANOS_PER_DAY = 86_400_000_000_000L;
+    private static final int MAX_VARLONG_BYTES = 10;
+    private static final int NANOS_PER_SECOND_EXPONENT = 9;
+    private static final long[] POWERS_OF_TEN = {
+        1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+        1_000_000_000L};
+
+    private SnapshotFormat() {
+    }
+
+    /**
+     * Writes a complete snapshot under a new identifier.
+     *
+     * @return the identifier, which delta snapshots name as their base
+     */
+    static long write(Path file, PortalState state) throws IOException {
+        long snapshotId;
+        do {
+            snapshotId = ThreadLocalRandom.current().nextLong();
+        } while (snapshotId == 0);
+        writeFile(file, encode(state, snapshotId));
+        return snapshotId;
+    }
+
+    /**
+     * Writes a delta snapshot. Only the teams and races of {@code changed}
+     * are written, together with its ID counters and journal sequence.
+     */
+    static void writeDelta(Path file, PortalState changed, long baseSnapshotId,
+            Collection<Integer> removedTeams, Collection<Integer> removedRaces)
+            throws IOException {
+        writeFile(file, encodeDelta(changed, baseSnapshotId, removedTeams, removedRaces));
+    }
+
+    /**
+     * Writes to a temporary file and then moves it over {@code file}. A
+     * portal loaded by {@link #map(Path)} may still be reading the old file,
+     * which must therefore be replaced rather than truncated.
+     */
+    private static void writeFile(Path file, ByteBuffer encoded) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (encoded.hasRemaining()) {
+                channel.write(encoded);
+            }
+        }
+        try {
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException exception) {
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a snapshot in this format or in the legacy serialized format.
+     */
+    static PortalState read(Path file) throws IOException, ClassNotFoundException {
+        ByteBuffer contents = readFile(file);
+        if (contents.remaining() >= Short.BYTES && contents.getShort(0) == SERIALIZATION_MAGIC) {
+            return readLegacy(contents);
+        }
+        return decode(contents, false);
+    }
+
+    /**
+     * Reads a base snapshot and applies a delta saved against it, recording
+     * in {@code changes} what the delta changed relative to the base.
+     */
+    static PortalState readDelta(Path baseFile, Path deltaFile, ChangeTracker changes)
+            throws IOException {
+        return decodeDelta(readFile(baseFile), readFile(deltaFile), changes);
+    }
+
+    private static ByteBuffer readFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("The snapshot file is too large");
+            }
+            ByteBuffer contents = ByteBuffer.allocate((int) channel.size());
+            while (contents.hasRemaining() && channel.read(contents) >= 0) {
+                // Keep reading until the buffer is full or the file ends.
+            }
+            return contents.flip();
+        }
+    }
+
+    /**
+     * Maps a snapshot into memory and decodes it, deferring result times to
+     * first use. Legacy serialized files are read in full instead.
+     *
+     * <p>The layout of every result section, including the termination of
+     * each packed time, is checked here. Whether each time lies within the
+     * day is only known once it is decoded, so such corruption surfaces on
+     * first use as an {@link UncheckedIOException}.</p>
+     */
+    static PortalState map(Path file) throws IOException, ClassNotFoundException {
+        MappedByteBuffer contents;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed.
+            contents = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (contents.remaining() >= Short.BYTES && contents.getShort(0) == SERIALIZATION_MAGIC) {
+            return read(file);
+        }
+        return decode(contents, true);
+    }
+
+    static ByteBuffer encode(PortalState state, long snapshotId) {
+        BinaryWriter out = new BinaryWriter(8192);
+        putHeader(out, MAGIC, state);
+        int section = beginSection(out, SNAPSHOT);
+        out.putLong(snapshotId);
+        endSection(out, section, 1);
+        putContents(out, state);
+        return out.written();
+    }
+
+    static ByteBuffer encodeDelta(PortalState changed, long baseSnapshotId,
+            Collection<Integer> removedTeams, Collection<Integer> removedRaces) {
+        BinaryWriter out = new BinaryWriter(8192);
+        putHeader(out, DELTA_MAGIC, changed);
+        int section = beginSection(out, DELTA);
+        out.putLong(baseSnapshotId);
+        putIds(out, removedTeams);
+        putIds(out, removedRaces);
+        endSection(out, section, 1);
+        putContents(out, changed);
+        return out.written();
+    }
+
+    private static void putHeader(BinaryWriter out, int magic, PortalState state) {
+        out.putInt(magic);
+        out.putShort(VERSION);
+        out.putInt(state.nextRaceId);
+        out.putInt(state.nextStageId);
+        out.putInt(state.nextCheckpointId);
+        out.putInt(state.nextTeamId);
+        out.putInt(state.nextRiderId);
+    }
+
+    private static void putIds(BinaryWriter out, Collection<Integer> ids) {
+        out.putInt(ids.size());
+        for (int id : ids) {
+            out.putInt(id);
+        }
+    }
+
+    /**
+     * Writes the entity sections for the teams and races of {@code state}
+     * and what they own, then the journal section.
+     */
+    private static void putContents(BinaryWriter out, PortalState state) {
+        int section = beginSection(out, TEAMS);
+        for (Team team : state.teams) {
+            out.putInt(team.getTeamID());
+            out.putString(team.getTeamName());
+            out.putString(team.getTeamDescription());
+        }
+        endSection(out, section, state.teams.size());
+
+        section = beginSection(out, RIDERS);
+        int count = 0;
+        for (Team team : state.teams) {
+            for (Rider rider : team.getRiders()) {
+                out.putInt(rider.getRiderID());
+                out.putInt(team.getTeamID());
+                out.putString(rider.getRiderName());
+                out.putInt(rider.getYearOfBirth());
+                count++;
+            }
+        }
+        endSection(out, section, count);
+
+        section = beginSection(out, RACES);
+        for (Race race : state.races) {
+            out.putInt(race.getRaceID());
+            out.putString(race.getRaceName());
+            out.putString(race.getRaceDescription());
+        }
+        endSection(out, section, state.races.size());
+
+        section = beginSection(out, STAGES);
+        count = 0;
+        for (Race race : state.races) {
+            for (Stage stage : race.getStages()) {
+                out.putInt(stage.getStageID());
+                out.putInt(race.getRaceID());
+                out.putString(stage.getStageName());
+                out.putString(stage.getStageDescription());
+                out.putDouble(stage.getStageLength());
+                out.putDateTime(stage.getStartTime());
+                out.putByte(stage.getStageType().ordinal());
+                out.putByte(stage.isWaitingForResults() ? 1 : 0);
+                count++;
+            }
+        }
+        endSection(out, section, count);
+
+        section = beginSection(out, CHECKPOINTS);
+        count = 0;
+        for (Race race : state.races) {
+            for (Stage stage : race.getStages()) {
+                for (Checkpoint checkpoint : stage.getCheckpoints()) {
+                    out.putInt(checkpoint.getCheckpointID());
+                    out.putInt(stage.getStageID());
+                    out.putDouble(checkpoint.getCheckpointLocation());
+                    out.putByte(checkpoint.getCheckpointType().ordinal());
+                    out.putNullableDouble(checkpoint.getCheckpointAverageGradient());
+                    out.putNullableDouble(checkpoint.getCheckpointLength());
+                    count++;
+                }
+            }
+        }
+        endSection(out, section, count);
+
+        section = beginSection(out, RESULTS);
+        count = 0;
+        for (Race race : state.races) {
+            for (Stage stage : race.getStages()) {
+                StageResults results = stage.getResultStore();
+                if (results.size() == 0) {
+                    continue;
+                }
+                putResults(out, stage.getStageID(), results);
+                count++;
+            }
+        }
+        endSection(out, section, count);
+
+        section = beginSection(out, JOURNAL);
+        out.putLong(state.journalSequence);
+        endSection(out, section, 1);
+    }
+
+    /**
+     * Writes one stage's results in the packed encoding of version 2.
+     */
+    private static void putResults(BinaryWriter out, int stageId, StageResults results) {
+        int rows = results.size();
+        int times = results.getTimeCount();
+        out.putInt(stageId);
+        out.putInt(rows);
+        out.putInt(times);
+        int previousId = 0;
+        for (int row = 0; row < rows; row++) {
+            int riderId = results.getRiderId(row);
+            out.putVarLong(zigZag((long) riderId - previousId));
+            previousId = riderId;
+        }
+
+        long reference = rows == 0 || times == 0 ? 0 : results.getNanoOfDay(0, 0);
+        int exponent = NANOS_PER_SECOND_EXPONENT;
+        for (int column = 0; column < times && exponent > 0; column++) {
+            for (int row = 0; row < rows && exponent > 0; row++) {
+                while (results.getNanoOfDay(row, column) % POWERS_OF_TEN[exponent] != 0) {
+                    exponent--;
+                }
+            }
+        }
+        long unit = POWERS_OF_TEN[exponent];
+        long ownBytes = 0;
+        long acrossRiderBytes = 0;
+        for (int column = 0; column < times; column++) {
+            long previous = 0;
+            for (int row = 0; row < rows; row++) {
+                long delta = timeDelta(results, row, column, reference, unit);
+                ownBytes += varLongSize(zigZag(delta));
+                acrossRiderBytes += varLongSize(zigZag(delta - previous));
+                previous = delta;
+            }
+        }
+        boolean acrossRiders = acrossRiderBytes < ownBytes;
+
+        out.putByte(exponent);
+        out.putByte(acrossRiders ? 1 : 0);
+        out.putVarLong(reference / unit);
+        int lengthOffset = out.position();
+        out.putInt(0);
+        for (int column = 0; column < times; column++) {
+            long previous = 0;
+            for (int row = 0; row < rows; row++) {
+                long delta = timeDelta(results, row, column, reference, unit);
+                out.putVarLong(zigZag(acrossRiders ? delta - previous : delta));
+                previous = delta;
+            }
+        }
+        out.putInt(lengthOffset, out.position() - lengthOffset - Integer.BYTES);
+    }
+
+    /**
+     * Returns the time since the rider's previous timing point, or since the
+     * reference for the first, in {@code unit}s.
+     */
+    private static long timeDelta(StageResults results, int row, int column, long reference,
+            long unit) {
+        long previous = column == 0 ? reference : results.getNanoOfDay(row, column - 1);
+        return (results.getNanoOfDay(row, column) - previous) / unit;
+    }
+
+    private static long zigZag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    private static long unZigZag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    private static int varLongSize(long value) {
+        return (Long.SIZE - Long.numberOfLeadingZeros(value | 1) + 6) / 7;
+    }
+
+    /**
+     * Decodes a snapshot. With {@code deferResults}, result times are decoded
+     * from {@code contents} only when a stage first needs them, so the buffer
+     * must stay valid and unchanged for as long as the portal is in use.
+     */
+    static PortalState decode(ByteBuffer contents, boolean deferResults) throws IOException {
+        short version = readHeader(contents, MAGIC);
+        try {
+            return new Decoder(deferResults, null).decode(contents, version);
+        } catch (BufferUnderflowException | IllegalArgumentException
+                | IndexOutOfBoundsException | NegativeArraySizeException exception) {
+            throw new IOException("The cycling portal snapshot is corrupt", exception);
+        }
+    }
+
+    static PortalState decodeDelta(ByteBuffer base, ByteBuffer delta, ChangeTracker changes)
+            throws IOException {
+        short baseVersion = readHeader(base, MAGIC);
+        short deltaVersion = readHeader(delta, DELTA_MAGIC);
+        try {
+            return new Decoder(false, changes).decodeDelta(base, baseVersion, delta, deltaVersion);
+        } catch (BufferUnderflowException | IllegalArgumentException
+                | IndexOutOfBoundsException | NegativeArraySizeException exception) {
+            throw new IOException("The cycling portal snapshot is corrupt", exception);
+        }
+    }
+
+    /**
+     * Checks the magic number and returns the format version.
+     */
+    private static short readHeader(ByteBuffer contents, int magic) throws IOException {
+        int found = contents.remaining() < Integer.BYTES + Short.BYTES ? 0 : contents.getInt();
+        if (found != magic) {
+            throw new IOException(found == DELTA_MAGIC
+                    ? "The file is a delta snapshot; load it together with its base"
+                    : found == MAGIC
+                    ? "The file is a complete snapshot, not a delta"
+                    : "The file does not contain a cycling portal snapshot");
+        }
+        short version = contents.getShort();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported cycling portal snapshot version " + version);
+        }
+        return version;
+    }
+
+    /**
+     * Splits the sections after the header by tag, dropping unknown ones.
+     */
+    private static ByteBuffer[] sections(ByteBuffer contents) {
+        ByteBuffer[] sections = new ByteBuffer[DELTA + 1];
+        while (contents.hasRemaining()) {
+            byte tag = contents.get();
+            int length = contents.getInt();
+            ByteBuffer section = contents.slice(contents.position(), length);
+            contents.position(contents.position() + length);
+            if (tag >= TEAMS && tag < sections.length) {
+                sections[tag] = section;
+            }
+        }
+        return sections;
+    }
+
+    private static PortalState readLegacy(ByteBuffer contents)
+            throws IOException, ClassNotFoundException {
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(
+                contents.array(), contents.position(), contents.remaining()))) {
+            Object loaded = input.readObject();
+            if (!(loaded instanceof PortalState portalState)) {
+                throw new IOException("The file does not contain a cycling portal snapshot");
+            }
+            return portalState;
+        }
+    }
+
+    /**
+     * Writes the tag and placeholders for the length and count, returning
+     * where the section starts.
+     */
+    private static int beginSection(BinaryWriter out, byte tag) {
+        int start = out.position();
+        out.putByte(tag);
+        out.putInt(0);
+        out.putInt(0);
+        return start;
+    }
+
+    private static void endSection(BinaryWriter out, int start, int count) {
+        int lengthOffset = start + 1;
+        out.putInt(lengthOffset, out.position() - lengthOffset - Integer.BYTES);
+        out.putInt(lengthOffset + Integer.BYTES, count);
+    }
+
+    static String getString(ByteBuffer input) {
+        int length = input.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > input.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        input.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static Double getNullableDouble(ByteBuffer input) {
+        return input.get() == 0 ? null : input.getDouble();
+    }
+
+    /**
+     * Reads a value written by {@link BinaryWriter#putVarLong(long)}.
+     */
+    static long getVarLong(ByteBuffer input) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte next = input.get();
+            value |= (long) (next & 0x7F) << shift;
+            if (next >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length integer");
+    }
+
+    static LocalDateTime getDateTime(ByteBuffer input) {
+        if (input.get() == 0) {
+            return null;
+        }
+        LocalDate date = LocalDate.ofEpochDay(input.getLong());
+        return LocalDateTime.of(date, LocalTime.ofNanoOfDay(input.getLong()));
+    }
+
+    private static <T> T require(IntIndex<T> entities, int id, String kind) throws IOException {
+        T entity = entities.get(id);
+        if (entity == null) {
+            throw new IOException("The cycling portal snapshot refers to an unknown " + kind
+                    + ": " + id);
+        }
+        return entity;
+    }
+
+    /**
+     * Rebuilds the entity graph one section at a time. When applying a delta,
+     * each section of the delta is read before the same section of the base,
+     * and base entities whose team or race the delta removed or replaced are
+     * skipped.
+     */
+    private static final class Decoder {
+        private final boolean deferResults;
+        private final ChangeTracker changes;
+        private final IntIndex<Team> teamsById = new IntIndex<>();
+        private final IntIndex<Rider> ridersById = new IntIndex<>();
+        private final IntIndex<Race> racesById = new IntIndex<>();
+        private final IntIndex<Stage> stagesById = new IntIndex<>();
+        private final List<Team> teams = new ArrayList<>();
+        private final List<Rider> riders = new ArrayList<>();
+        private final List<Race> races = new ArrayList<>();
+        private final List<Stage> stages = new ArrayList<>();
+        private final List<Checkpoint> checkpoints = new ArrayList<>();
+        private final IntIntIndex discardedTeams = new IntIntIndex();
+        private final IntIntIndex discardedRaces = new IntIntIndex();
+        private final IntIntIndex discardedStages = new IntIntIndex();
+        private boolean readingBase;
+        private boolean packedResults;
+        private long journalSequence;
+
+        private Decoder(boolean deferResults, ChangeTracker changes) {
+            this.deferResults = deferResults;
+            this.changes = changes;
+        }
+
+        private PortalState decode(ByteBuffer contents, short version) throws IOException {
+            packedResults = version >= 2;
+            int[] nextIds = readNextIds(contents);
+            ByteBuffer[] sections = sections(contents);
+            for (byte tag = TEAMS; tag <= JOURNAL; tag++) {
+                readSection(sections[tag], tag);
+            }
+            return state(nextIds, readSnapshotId(sections));
+        }
+
+        private PortalState decodeDelta(ByteBuffer base, short baseVersion,
+                ByteBuffer delta, short deltaVersion) throws IOException {
+            readNextIds(base);
+            int[] nextIds = readNextIds(delta);
+            ByteBuffer[] baseSections = sections(base);
+            ByteBuffer[] deltaSections = sections(delta);
+            long baseSnapshotId = readSnapshotId(baseSections);
+            ByteBuffer header = deltaSections[DELTA];
+            if (header == null || header.getInt() != 1) {
+                throw new IOException("The delta snapshot does not name its base");
+            }
+            if (baseSnapshotId == 0 || header.getLong() != baseSnapshotId) {
+                throw new IOException("The delta snapshot was saved against a different base");
+            }
+
+            changes.startBase(baseSnapshotId);
+            for (int count = header.getInt(); count > 0; count--) {
+                int teamId = header.getInt();
+                discardedTeams.put(teamId, 0);
+                changes.teamRemoved(teamId);
+            }
+            for (int count = header.getInt(); count > 0; count--) {
+                int raceId = header.getInt();
+                discardedRaces.put(raceId, 0);
+                changes.raceRemoved(raceId);
+            }
+            for (byte tag = TEAMS; tag <= RESULTS; tag++) {
+                readingBase = false;
+                packedResults = deltaVersion >= 2;
+                readSection(deltaSections[tag], tag);
+                readingBase = true;
+                packedResults = baseVersion >= 2;
+                readSection(baseSections[tag], tag);
+            }
+            readingBase = false;
+            readSection(deltaSections[JOURNAL], JOURNAL);
+            return state(nextIds, baseSnapshotId);
+        }
+
+        private static int[] readNextIds(ByteBuffer contents) {
+            int[] nextIds = new int[5];
+            for (int index = 0; index < nextIds.length; index++) {
+                nextIds[index] = contents.getInt();
+            }
+            return nextIds;
+        }
+
+        private static long readSnapshotId(ByteBuffer[] sections) {
+            ByteBuffer section = sections[SNAPSHOT];
+            return section == null || section.getInt() != 1 ? 0 : section.getLong();
+        }
+
+        private PortalState state(int[] nextIds, long snapshotId) {
+            return new PortalState(races, stages, checkpoints, teams, riders,
+                    nextIds[0], nextIds[1], nextIds[2], nextIds[3], nextIds[4],
+                    journalSequence, snapshotId);
+        }
+
+        private void readSection(ByteBuffer section, byte tag) throws IOException {
+            if (section == null) {
+                return;
+            }
+            int count = section.getInt();
+            for (int entry = 0; entry < count; entry++) {
+                switch (tag) {
+                    case TEAMS -> readTeam(section);
+                    case RIDERS -> readRider(section);
+                    case RACES -> readRace(section);
+                    case STAGES -> readStage(section);
+                    case CHECKPOINTS -> readCheckpoint(section);
+                    case RESULTS -> {
+                        if (packedResults) {
+                            readPackedResults(section);
+                        } else {
+                            readResults(section);
+                        }
+                    }
+                    default -> journalSequence = section.getLong();
+                }
+            }
+        }
+
+        private void readTeam(ByteBuffer input) {
+            Team team = new Team(input.getInt(), getString(input), getString(input));
+            int teamId = team.getTeamID();
+            if (readingBase && discardedTeams.containsKey(teamId)) {
+                return;
+            }
+            if (changes != null && !readingBase) {
+                discardedTeams.put(teamId, 0);
+                changes.teamChanged(teamId);
+            }
+            teamsById.put(teamId, team);
+            teams.add(team);
+        }
+
+        private void readRider(ByteBuffer input) throws IOException {
+            int riderId = input.getInt();
+            int teamId = input.getInt();
+            String name = getString(input);
+            int yearOfBirth = input.getInt();
+            if (readingBase && discardedTeams.containsKey(teamId)) {
+                return;
+            }
+            Team team = require(teamsById, teamId, "team");
+            Rider rider = new Rider(riderId, name, yearOfBirth, team);
+            team.addRider(rider);
+            ridersById.put(riderId, rider);
+            riders.add(rider);
+        }
+
+        private void readRace(ByteBuffer input) {
+            Race race = new Race(input.getInt(), getString(input), getString(input));
+            int raceId = race.getRaceID();
+            if (readingBase && discardedRaces.containsKey(raceId)) {
+                return;
+            }
+            if (changes != null && !readingBase) {
+                discardedRaces.put(raceId, 0);
+                changes.raceChanged(raceId);
+            }
+            racesById.put(raceId, race);
+            races.add(race);
+        }
+
+        private void readStage(ByteBuffer input) throws IOException {
+            int stageId = input.getInt();
+            int raceId = input.getInt();
+            String name = getString(input);
+            String description = getString(input);
+            double length = input.getDouble();
+            LocalDateTime startTime = getDateTime(input);
+            StageType type = StageType.values()[input.get()];
+            boolean waitingForResults = input.get() != 0;
+            if (readingBase && discardedRaces.containsKey(raceId)) {
+                discardedStages.put(stageId, 0);
+                return;
+            }
+            Race race = require(racesById, raceId, "race");
+            Stage stage = new Stage(stageId, name, description, length, startTime, type, race);
+            if (waitingForResults) {
+                stage.concludePreparation();
+            }
+            race.addStage(stage);
+            stagesById.put(stageId, stage);
+            stages.add(stage);
+        }
+
+        private void readCheckpoint(ByteBuffer input) throws IOException {
+            int checkpointId = input.getInt();
+            int stageId = input.getInt();
+            double location = input.getDouble();
+            CheckpointType type = CheckpointType.values()[input.get()];
+            Double averageGradient = getNullableDouble(input);
+            Double length = getNullableDouble(input);
+            if (readingBase && discardedStages.containsKey(stageId)) {
+                return;
+            }
+            Stage stage = require(stagesById, stageId, "stage");
+            Checkpoint checkpoint = new Checkpoint(
+                    checkpointId, location, type, averageGradient, length, stage);
+            stage.addCheckpoint(checkpoint);
+            checkpoints.add(checkpoint);
+        }
+
+        private void readResults(ByteBuffer input) throws IOException {
+            int stageId = input.getInt();
+            int rows = input.getInt();
+            int times = input.getInt();
+            if (rows < 0 || times < 0
+                    || (long) rows * (Integer.BYTES + (long) times * Long.BYTES) > input.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            if (readingBase && discardedStages.containsKey(stageId)) {
+                input.position(input.position() + rows * (Integer.BYTES + times * Long.BYTES));
+                return;
+            }
+            Stage stage = require(stagesById, stageId, "stage");
+            Rider[] resultRiders = new Rider[rows];
+            for (int row = 0; row < resultRiders.length; row++) {
+                resultRiders[row] = require(ridersById, input.getInt(), "rider");
+            }
+            int length = times * rows * Long.BYTES;
+            ByteBuffer encodedTimes = input.slice(input.position(), length);
+            input.position(input.position() + length);
+            if (deferResults) {
+                stage.restoreResults(resultRiders,
+                        deferred(() -> decodeColumns(encodedTimes, times, rows)));
+            } else {
+                long[][] columns = decodeColumns(encodedTimes, times, rows);
+                stage.restoreResults(resultRiders, () -> columns);
+            }
+        }
+
+        private void readPackedResults(ByteBuffer input) throws IOException {
+            int stageId = input.getInt();
+            int rows = input.getInt();
+            int times = input.getInt();
+            if (rows < 0 || times < 0 || rows > input.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            boolean discarded = readingBase && discardedStages.containsKey(stageId);
+            Rider[] resultRiders = new Rider[discarded ? 0 : rows];
+            long riderId = 0;
+            for (int row = 0; row < rows; row++) {
+                riderId += unZigZag(getVarLong(input));
+                if (!discarded) {
+                    resultRiders[row] = require(ridersById, (int) riderId, "rider");
+                }
+            }
+            int exponent = input.get();
+            boolean acrossRiders = input.get() != 0;
+            long unit = POWERS_OF_TEN[exponent];
+            long reference = getVarLong(input);
+            int length = input.getInt();
+            // Every packed time takes at least one byte.
+            if ((long) rows * times > length) {
+                throw new BufferUnderflowException();
+            }
+            ByteBuffer encodedTimes = input.slice(input.position(), length);
+            input.position(input.position() + length);
+            if (discarded) {
+                return;
+            }
+            requireVarLongs(encodedTimes, (long) rows * times);
+
+            Stage stage = require(stagesById, stageId, "stage");
+            if (deferResults) {
+                stage.restoreResults(resultRiders, deferred(() -> decodePackedColumns(
+                        encodedTimes, times, rows, unit, reference, acrossRiders)));
+            } else {
+                long[][] columns = decodePackedColumns(
+                        encodedTimes, times, rows, unit, reference, acrossRiders);
+                stage.restoreResults(resultRiders, () -> columns);
+            }
+        }
+
+        /**
+         * Checks that {@code encoded} holds exactly {@code count} complete
+         * variable-length integers, without decoding them.
+         */
+        private static void requireVarLongs(ByteBuffer encoded, long count) {
+            long complete = 0;
+            int continuations = 0;
+            for (int index = encoded.position(); index < encoded.limit(); index++) {
+                if (encoded.get(index) >= 0) {
+                    complete++;
+                    continuations = 0;
+                } else if (++continuations == MAX_VARLONG_BYTES) {
+                    throw new IllegalArgumentException("Malformed variable-length integer");
+                }
+            }
+            if (complete != count || continuations != 0) {
+                throw new IllegalArgumentException("Malformed packed result times");
+            }
+        }
+
+        /**
+         * Wraps a deferred decoding so that corruption found on first use is
+         * reported as an {@link UncheckedIOException}.
+         */
+        private static Supplier<long[][]> deferred(Supplier<long[][]> decoding) {
+            return () -> {
+                try {
+                    return decoding.get();
+                } catch (BufferUnderflowException | IllegalArgumentException
+                        | IndexOutOfBoundsException exception) {
+                    throw new UncheckedIOException(new IOException(
+                            "The cycling portal snapshot is corrupt", exception));
+                }
+            };
+        }
+
+        private static long[][] decodePackedColumns(ByteBuffer encodedTimes, int times, int rows,
+                long unit, long reference, boolean acrossRiders) {
+            ByteBuffer input = encodedTimes.duplicate();
+            long[][] columns = new long[times][rows];
+            for (int column = 0; column < times; column++) {
+                long previous = 0;
+                for (int row = 0; row < rows; row++) {
+                    long delta = unZigZag(getVarLong(input));
+                    if (acrossRiders) {
+                        delta += previous;
+                    }
+                    previous = delta;
+                    columns[column][row] =
+                            (column == 0 ? reference : columns[column - 1][row]) + delta;
+                }
+            }
+            // The unit divides a day, so checking before scaling cannot overflow.
+            long unitsPerDay = NANOS_PER_DAY / unit;
+            for (long[] column : columns) {
+                for (int row = 0; row < rows; row++) {
+                    requireTimeOfDay(column[row], unitsPerDay);
+                    column[row] *= unit;
+                }
+            }
+            return columns;
+        }
+
+        private static long[][] decodeColumns(ByteBuffer encodedTimes, int times, int rows) {
+            LongBuffer values = encodedTimes.asLongBuffer();
+            long[][] columns = new long[times][rows];
+            for (long[] column : columns) {
+                values.get(column);
+                for (long time : column) {
+                    requireTimeOfDay(time, NANOS_PER_DAY);
+                }
+            }
+            return columns;
+        }
+
+        /**
+         * Rejects a result time that is not within a day, counted in units of
+         * which the day has {@code unitsPerDay}.
+         */
+        private static void requireTimeOfDay(long time, long unitsPerDay) {
+            if (time < 0 || time >= unitsPerDay) {
+                throw new IllegalArgumentException("A result time is not a time of day");
+            }
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package cycling;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * A stage belonging to a race.
@@ -23,10 +27,23 @@ public final class Stage implements Serializable {
     private final StageType stageType;
     private final Race race;
     private final List<Checkpoint> checkpoints = new ArrayList<>();
+    // Absent from files saved before stages stored their results.
+    private StageResults results;
     private boolean waitingForResults;
+    private transient int resultsVersion;
+    private transient int scoringVersion;
+    private transient int savedResultsVersion;
+    private transient StageScoring scoring;
 
     Stage(int stageID, String stageName, String stageDescription, double stageLength,
             LocalDateTime startTime, StageType stageType, Race race) {
+        this(stageID, stageName, stageDescription, stageLength, startTime, stageType, race,
+                new StageResults());
+    }
+
+    private Stage(int stageID, String stageName, String stageDescription, double stageLength,
+            LocalDateTime startTime, StageType stageType, Race race, StageResults results) {
+        this.results = results;
         this.stageID = stageID;
         this.stageName = stageName;
         this.stageDescription = stageDescription;
@@ -84,4 +101,133 @@ public final class Stage implements Serializable {
     void removeCheckpoint(Checkpoint checkpoint) {
         checkpoints.remove(checkpoint);
     }
+
+    /**
+     * Returns a point-in-time copy of this stage belonging to {@code owner}.
+     * Checkpoints are copied, results are shared copy-on-write and cached
+     * rankings are reused, so the copy costs nothing per result.
+     */
+    synchronized Stage copyFor(Race owner) {
+        Stage copy = new Stage(stageID, stageName, stageDescription, stageLength,
+                startTime, stageType, owner, results.share());
+        for (Checkpoint checkpoint : checkpoints) {
+            copy.checkpoints.add(new Checkpoint(checkpoint.getCheckpointID(),
+                    checkpoint.getCheckpointLocation(), checkpoint.getCheckpointType(),
+                    checkpoint.getCheckpointAverageGradient(), checkpoint.getCheckpointLength(),
+                    copy));
+        }
+        copy.waitingForResults = waitingForResults;
+        copy.resultsVersion = resultsVersion;
+        copy.scoringVersion = scoringVersion;
+        copy.scoring = scoring;
+        return copy;
+    }
+
+    /**
+     * The columnar result store. Callers must mutate it only through
+     * {@link #addResult} and {@link #removeResult} so the version stays current.
+     */
+    StageResults getResultStore() {
+        return results;
+    }
+
+    Result getResult(Rider rider) {
+        int row = results.rowOf(rider.getRiderID());
+        return row < 0 ? null : new Result(rider, this, results.getTimes(row));
+    }
+
+    boolean hasResult(Rider rider) {
+        return results.rowOf(rider.getRiderID()) >= 0;
+    }
+
+    void addResult(Rider rider, LocalTime[] checkpointTimes) {
+        results.add(rider.getRiderID(), checkpointTimes);
+        rider.addResultStage(this);
+        resultsVersion++;
+    }
+
+    /**
+     * Adds already validated results for several riders, bumping the version
+     * once for the whole batch.
+     */
+    void addResults(Rider[] riders, LocalTime[][] checkpointTimes) {
+        if (riders.length == 0) {
+            return;
+        }
+        results.reserve(riders.length);
+        for (int index = 0; index < riders.length; index++) {
+            results.add(riders[index].getRiderID(), checkpointTimes[index]);
+            riders[index].addResultStage(this);
+        }
+        resultsVersion++;
+    }
+
+    /**
+     * Loads the results of a freshly restored stage and links each rider back
+     * to it. {@code columns} supplies one nanosecond-of-day column per timing
+     * point, each in the order of {@code riders}; it is called on first use.
+     */
+    void restoreResults(Rider[] riders, Supplier<long[][]> columns) {
+        int[] riderIds = new int[riders.length];
+        for (int index = 0; index < riders.length; index++) {
+            riderIds[index] = riders[index].getRiderID();
+        }
+        results.restore(riderIds, columns);
+        for (Rider rider : riders) {
+            rider.addResultStage(this);
+        }
+        resultsVersion++;
+    }
+
+    boolean removeResult(Rider rider) {
+        if (!results.remove(rider.getRiderID())) {
+            return false;
+        }
+        rider.removeResultStage(this);
+        resultsVersion++;
+        return true;
+    }
+
+    /**
+     * Counter bumped on every result mutation; derived data computed from the
+     * results is valid only while the version it was computed at is current.
+     */
+    int getResultsVersion() {
+        return resultsVersion;
+    }
+
+    /**
+     * Records that the current results are part of the base snapshot.
+     */
+    void markResultsSaved() {
+        savedResultsVersion = resultsVersion;
+    }
+
+    /**
+     * Tells whether the results changed since {@link #markResultsSaved()}.
+     */
+    boolean hasUnsavedResults() {
+        return resultsVersion != savedResultsVersion;
+    }
+
+    /**
+     * Returns the memoized rankings of this stage, evaluating them again only
+     * if the results have changed since they were last cached. Synchronized
+     * because concurrent readers may populate the cache at the same time.
+     */
+    synchronized StageScoring getScoring() {
+        if (scoring == null || scoringVersion != resultsVersion) {
+            scoring = StageScoring.evaluate(this);
+            scoringVersion = resultsVersion;
+        }
+        return scoring;
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+        if (results == null) {
+            results = new StageResults();
+        }
+    }
 }
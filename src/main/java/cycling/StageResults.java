@@ -0,0 +1,219 @@
+package cycling;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Columnar store of the results registered in one stage.
+ *
+ * <p>Each row is one rider. Rider IDs are held in a dense {@code int[]} and
+ * every timing point (start, each checkpoint, finish) in its own
+ * {@code long[]} column of nanosecond-of-day values, so ranking and scoring
+ * scan contiguous primitive arrays. Rows are removed by moving the last row
+ * into the gap; row order therefore carries no meaning.</p>
+ *
+ * <p>{@link #share()} hands out a second store over the same arrays for a
+ * point-in-time snapshot. Both are then copy-on-write: the first mutation of
+ * either copies the arrays, so the other keeps seeing the shared state.</p>
+ *
+ * <p>A restored store may defer decoding its time columns until they are
+ * first used, so that loading a snapshot only rebuilds the rider index. The
+ * deferred decoding is synchronized because concurrent readers may trigger
+ * it together.</p>
+ */
+final class StageResults implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final long NANOS_PER_DAY = Duration.ofDays(1).toNanos();
+    private static final int MINIMUM_CAPACITY = 8;
+
+    private IntIntIndex rowsByRider = new IntIntIndex();
+    private int[] riderIds = new int[0];
+    private long[][] columns = new long[0][];
+    private int size;
+    private transient boolean shared;
+    private transient volatile Supplier<long[][]> pendingColumns;
+
+    /**
+     * Fills an empty store with restored rows, taking ownership of the rider
+     * IDs. The time columns are requested from {@code decodedColumns} when
+     * first needed; each must hold one time per rider.
+     *
+     * @throws IllegalArgumentException if a rider appears twice
+     */
+    void restore(int[] decodedRiderIds, Supplier<long[][]> decodedColumns) {
+        IntIntIndex rows = new IntIntIndex(decodedRiderIds.length);
+        for (int row = 0; row < decodedRiderIds.length; row++) {
+            rows.put(decodedRiderIds[row], row);
+        }
+        if (rows.size() != decodedRiderIds.length) {
+            throw new IllegalArgumentException("A rider has more than one result");
+        }
+        rowsByRider = rows;
+        riderIds = decodedRiderIds;
+        size = decodedRiderIds.length;
+        shared = false;
+        pendingColumns = decodedColumns;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getRiderId(int row) {
+        return riderIds[row];
+    }
+
+    /**
+     * Returns the row holding the rider's result, or {@code -1} if none.
+     */
+    int rowOf(int riderId) {
+        return rowsByRider.get(riderId, -1);
+    }
+
+    int getTimeCount() {
+        return timeColumns().length;
+    }
+
+    long getNanoOfDay(int row, int timeIndex) {
+        return timeColumns()[timeIndex][row];
+    }
+
+    LocalTime[] getTimes(int row) {
+        long[][] decoded = timeColumns();
+        LocalTime[] times = new LocalTime[decoded.length];
+        for (int column = 0; column < decoded.length; column++) {
+            times[column] = LocalTime.ofNanoOfDay(decoded[column][row]);
+        }
+        return times;
+    }
+
+    /**
+     * Elapsed nanoseconds from the start to the given timing point of a row,
+     * wrapping past midnight.
+     */
+    long elapsedNanos(int row, int timeIndex) {
+        long[][] decoded = timeColumns();
+        long elapsed = decoded[timeIndex][row] - decoded[0][row];
+        return elapsed < 0 ? elapsed + NANOS_PER_DAY : elapsed;
+    }
+
+    long finishElapsedNanos(int row) {
+        return elapsedNanos(row, timeColumns().length - 1);
+    }
+
+    /**
+     * Returns a store with the same contents that shares this store's arrays
+     * until either of them is mutated.
+     */
+    StageResults share() {
+        StageResults copy = new StageResults();
+        copy.rowsByRider = rowsByRider;
+        copy.riderIds = riderIds;
+        copy.columns = timeColumns();
+        copy.size = size;
+        copy.shared = true;
+        shared = true;
+        return copy;
+    }
+
+    void add(int riderId, LocalTime[] times) {
+        timeColumns();
+        unshare();
+        if (size == 0 && columns.length != times.length) {
+            columns = new long[times.length][riderIds.length];
+        }
+        if (size == riderIds.length) {
+            grow(Math.max(MINIMUM_CAPACITY, riderIds.length * 2));
+        }
+        riderIds[size] = riderId;
+        for (int column = 0; column < columns.length; column++) {
+            columns[column][size] = times[column].toNanoOfDay();
+        }
+        rowsByRider.put(riderId, size);
+        size++;
+    }
+
+    /**
+     * Grows the arrays once so that {@code additional} rows can be added
+     * without further copying.
+     */
+    void reserve(int additional) {
+        timeColumns();
+        unshare();
+        if (size + additional > riderIds.length) {
+            grow(size + additional);
+        }
+    }
+
+    boolean remove(int riderId) {
+        int row = rowOf(riderId);
+        if (row < 0) {
+            return false;
+        }
+        timeColumns();
+        unshare();
+        rowsByRider.remove(riderId);
+        int last = --size;
+        if (row != last) {
+            riderIds[row] = riderIds[last];
+            for (long[] column : columns) {
+                column[row] = column[last];
+            }
+            rowsByRider.put(riderIds[row], row);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the time columns, decoding them first if they were deferred.
+     */
+    private long[][] timeColumns() {
+        if (pendingColumns != null) {
+            decodePendingColumns();
+        }
+        return columns;
+    }
+
+    private synchronized void decodePendingColumns() {
+        Supplier<long[][]> decoder = pendingColumns;
+        if (decoder != null) {
+            columns = decoder.get();
+            pendingColumns = null;
+        }
+    }
+
+    @Serial
+    private void writeObject(ObjectOutputStream output) throws IOException {
+        timeColumns();
+        output.defaultWriteObject();
+    }
+
+    private void grow(int capacity) {
+        riderIds = Arrays.copyOf(riderIds, capacity);
+        for (int column = 0; column < columns.length; column++) {
+            columns[column] = Arrays.copyOf(columns[column], capacity);
+        }
+    }
+
+    private void unshare() {
+        if (!shared) {
+            return;
+        }
+        rowsByRider = rowsByRider.copy();
+        riderIds = riderIds.clone();
+        long[][] copies = new long[columns.length][];
+        for (int column = 0; column < columns.length; column++) {
+            copies[column] = columns[column].clone();
+        }
+        columns = copies;
+        shared = false;
+    }
+}
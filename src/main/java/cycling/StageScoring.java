@@ -0,0 +1,150 @@
+package cycling;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Derived timing data for one stage: the finish order, adjusted elapsed times
+ * and the finish, sprint and mountain points of every rider.
+ *
+ * <p>Every ordering is produced by scanning the primitive columns of the
+ * stage's {@link StageResults}, and the outputs are primitive arrays in finish
+ * order. Checkpoints only rank the places their points scale awards, using a
+ * bounded selection rather than a full sort. Instances are immutable and
+ * cached by {@link Stage} until its results change.</p>
+ */
+final class StageScoring {
+    private static final Map<StageType, List<Integer>> FINISH_POINTS = new EnumMap<>(StageType.class);
+    private static final Map<CheckpointType, List<Integer>> MOUNTAIN_POINTS =
+            new EnumMap<>(CheckpointType.class);
+    private static final List<Integer> SPRINT_POINTS =
+            List.of(20, 17, 15, 13, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1);
+
+    static {
+        FINISH_POINTS.put(StageType.FLAT,
+                List.of(50, 30, 20, 18, 16, 14, 12, 10, 8, 7, 6, 5, 4, 3, 2));
+        FINISH_POINTS.put(StageType.MEDIUM_MOUNTAIN,
+                List.of(30, 25, 22, 19, 17, 15, 13, 11, 9, 7, 6, 5, 4, 3, 2));
+        FINISH_POINTS.put(StageType.HIGH_MOUNTAIN,
+                List.of(20, 17, 15, 13, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2));
+        FINISH_POINTS.put(StageType.TT,
+                List.of(20, 17, 15, 13, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2));
+
+        MOUNTAIN_POINTS.put(CheckpointType.C4, List.of(1));
+        MOUNTAIN_POINTS.put(CheckpointType.C3, List.of(2, 1));
+        MOUNTAIN_POINTS.put(CheckpointType.C2, List.of(5, 3, 2, 1));
+        MOUNTAIN_POINTS.put(CheckpointType.C1, List.of(10, 8, 6, 4, 2, 1));
+        MOUNTAIN_POINTS.put(CheckpointType.HC, List.of(20, 15, 12, 10, 8, 6, 4, 2));
+    }
+
+    private final int[] finishOrder;
+    private final long[] adjustedTimes;
+    private final long[] adjustedTimesByRow;
+    private final int[] points;
+    private final int[] mountainPoints;
+
+    private StageScoring(int[] finishOrder, long[] adjustedTimes, long[] adjustedTimesByRow,
+            int[] points, int[] mountainPoints) {
+        this.finishOrder = finishOrder;
+        this.adjustedTimes = adjustedTimes;
+        this.adjustedTimesByRow = adjustedTimesByRow;
+        this.points = points;
+        this.mountainPoints = mountainPoints;
+    }
+
+    static StageScoring evaluate(Stage stage) {
+        StageResults results = stage.getResultStore();
+        int riderCount = results.size();
+        int[] riderIds = new int[riderCount];
+        long[] finishTimes = new long[riderCount];
+        for (int row = 0; row < riderCount; row++) {
+            riderIds[row] = results.getRiderId(row);
+            finishTimes[row] = results.finishElapsedNanos(row);
+        }
+
+        int[] finishRows = RankingSort.order(finishTimes, riderIds);
+        int[] finishOrder = new int[riderCount];
+        long[] adjustedTimes = new long[riderCount];
+        for (int position = 0; position < riderCount; position++) {
+            finishOrder[position] = riderIds[finishRows[position]];
+            adjustedTimes[position] = finishTimes[finishRows[position]];
+        }
+        AdjustedTimes.group(adjustedTimes, riderCount,
+                stage.getStageType() == StageType.TT, adjustedTimes);
+        long[] adjustedTimesByRow = new long[riderCount];
+        for (int position = 0; position < riderCount; position++) {
+            adjustedTimesByRow[finishRows[position]] = adjustedTimes[position];
+        }
+
+        int[] pointsByRow = new int[riderCount];
+        int[] mountainPointsByRow = new int[riderCount];
+        List<Integer> finishScale = FINISH_POINTS.get(stage.getStageType());
+        for (int position = 0; position < Math.min(riderCount, finishScale.size()); position++) {
+            pointsByRow[finishRows[position]] += finishScale.get(position);
+        }
+        List<Checkpoint> checkpoints = stage.getCheckpoints();
+        long[] splitTimes = new long[riderCount];
+        for (int checkpoint = 0; checkpoint < checkpoints.size(); checkpoint++) {
+            CheckpointType type = checkpoints.get(checkpoint).getCheckpointType();
+            boolean sprint = type == CheckpointType.SPRINT;
+            List<Integer> scale = sprint ? SPRINT_POINTS : MOUNTAIN_POINTS.get(type);
+            for (int row = 0; row < riderCount; row++) {
+                splitTimes[row] = results.elapsedNanos(row, checkpoint + 1);
+            }
+            int[] leaders = BoundedSelection.top(splitTimes, riderIds, scale.size());
+            int[] totals = sprint ? pointsByRow : mountainPointsByRow;
+            for (int place = 0; place < leaders.length; place++) {
+                totals[leaders[place]] += scale.get(place);
+            }
+        }
+
+        int[] points = new int[riderCount];
+        int[] mountainPoints = new int[riderCount];
+        for (int position = 0; position < riderCount; position++) {
+            points[position] = pointsByRow[finishRows[position]];
+            mountainPoints[position] = mountainPointsByRow[finishRows[position]];
+        }
+        return new StageScoring(finishOrder, adjustedTimes, adjustedTimesByRow,
+                points, mountainPoints);
+    }
+
+    /**
+     * Rider IDs in finish order. The array is shared and must not be modified.
+     */
+    int[] getFinishOrder() {
+        return finishOrder;
+    }
+
+    /**
+     * Adjusted elapsed nanoseconds in finish order. The array is shared and
+     * must not be modified.
+     */
+    long[] getAdjustedTimes() {
+        return adjustedTimes;
+    }
+
+    /**
+     * Adjusted elapsed nanoseconds of a row of the {@link StageResults} this
+     * scoring was evaluated from.
+     */
+    long getAdjustedTimeOfRow(int row) {
+        return adjustedTimesByRow[row];
+    }
+
+    /**
+     * Finish and intermediate sprint points in finish order. The array is
+     * shared and must not be modified.
+     */
+    int[] getPoints() {
+        return points;
+    }
+
+    /**
+     * Categorised-climb points in finish order. The array is shared and must
+     * not be modified.
+     */
+    int[] getMountainPoints() {
+        return mountainPoints;
+    }
+}
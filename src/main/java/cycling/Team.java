@@ -1,13 +1,18 @@
 package cycling;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serial;
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * A cycling team and its riders.
+ *
+ * <p>The roster is copy-on-write so that riders can be signed concurrently
+ * while other threads list the team.</p>
  */
 public final class Team implements Serializable {
     @Serial
@@ -16,7 +21,8 @@ public final class Team implements Serializable {
     private final int teamID;
     private final String teamName;
     private final String teamDescription;
-    private final List<Rider> riders = new ArrayList<>();
+    // Files saved before the roster was copy-on-write hold an ArrayList.
+    private List<Rider> riders = new CopyOnWriteArrayList<>();
 
     Team(int teamID, String teamName, String teamDescription) {
         this.teamID = teamID;
@@ -47,4 +53,12 @@ public final class Team implements Serializable {
     void removeRider(Rider rider) {
         riders.remove(rider);
     }
+
+    @Serial
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+        if (!(riders instanceof CopyOnWriteArrayList)) {
+            riders = new CopyOnWriteArrayList<>(riders);
+        }
+    }
 }
@@ -0,0 +1,214 @@
+package cycling;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Imports archived stage timing files into a portal.
+ *
+ * <p>Each file holds the results of one stage. The first line names the stage
+ * as {@code stage,<name>}; every other non-blank line that does not start
+ * with {@code #} is a rider ID followed by that rider's ISO local times, start
+ * first and finish last, all separated by commas:</p>
+ *
+ * <pre>
+ * stage,Opening
+ * 17,09:00:00,09:42:10.250,10:31:02
+ * </pre>
+ *
+ * <p>Files are parsed and pre-validated on a fixed pool of worker threads.
+ * The calling thread is the only writer: it applies the parsed files in the
+ * order given, each as one
+ * {@link CyclingPortal#registerStageResultsBatch(int, int[], LocalTime[][])}
+ * call, so the portal's own validation, duplicate detection and ID rules
+ * decide what is accepted. At most {@code maximumPending} files are parsed
+ * ahead of the writer, which bounds memory however long the archive is.</p>
+ */
+public final class TimingImportPipeline {
+    private static final String STAGE_HEADER = "stage,";
+
+    private final CyclingPortal portal;
+    private final int parserThreads;
+    private final int maximumPending;
+
+    /**
+     * @param portal         the portal that receives the results
+     * @param parserThreads  the number of threads parsing files
+     * @param maximumPending the most files parsed but not yet applied
+     * @throws IllegalArgumentException if either count is not positive
+     */
+    public TimingImportPipeline(CyclingPortal portal, int parserThreads, int maximumPending) {
+        if (parserThreads < 1 || maximumPending < 1) {
+            throw new IllegalArgumentException("Thread and pending-file counts must be positive");
+        }
+        this.portal = Objects.requireNonNull(portal, "portal");
+        this.parserThreads = parserThreads;
+        this.maximumPending = maximumPending;
+    }
+
+    /**
+     * Imports the files in order. A file that cannot be parsed or that the
+     * portal rejects is skipped as a whole and reported; the others are still
+     * imported.
+     *
+     * @param files the timing files to import
+     * @return what was imported and why any file was rejected
+     * @throws InterruptedException if interrupted while waiting for a parser
+     */
+    public Report importFiles(List<Path> files) throws InterruptedException {
+        Report report = new Report();
+        ExecutorService parsers = Executors.newFixedThreadPool(parserThreads);
+        try {
+            Deque<Future<StageBatch>> pending = new ArrayDeque<>();
+            Deque<Path> pendingFiles = new ArrayDeque<>();
+            for (Path file : files) {
+                if (pending.size() == maximumPending) {
+                    apply(pendingFiles.removeFirst(), pending.removeFirst(), report);
+                }
+                pending.addLast(parsers.submit(() -> parse(file)));
+                pendingFiles.addLast(file);
+            }
+            while (!pending.isEmpty()) {
+                apply(pendingFiles.removeFirst(), pending.removeFirst(), report);
+            }
+        } finally {
+            parsers.shutdownNow();
+        }
+        return report;
+    }
+
+    private void apply(Path file, Future<StageBatch> parsed, Report report)
+            throws InterruptedException {
+        try {
+            StageBatch batch = parsed.get();
+            int stageId = portal.getStageIdByName(batch.stageName);
+            portal.registerStageResultsBatch(stageId, batch.riderIds, batch.times);
+            report.imported(batch.riderIds.length);
+        } catch (ExecutionException exception) {
+            report.rejected(file, exception.getCause().getMessage());
+        } catch (NameNotRecognisedException | IDNotRecognisedException
+                | DuplicatedResultException | InvalidCheckpointTimesException
+                | InvalidStageStateException | IllegalArgumentException exception) {
+            report.rejected(file, exception.getMessage());
+        }
+    }
+
+    /**
+     * Parses one file and checks what can be checked without the portal: the
+     * line format, a consistent number of times, chronological order and
+     * riders repeated within the file.
+     */
+    private static StageBatch parse(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).startsWith(STAGE_HEADER)) {
+            throw lineError(1, "expected '" + STAGE_HEADER + "<stage name>'");
+        }
+        String stageName = lines.get(0).substring(STAGE_HEADER.length()).trim();
+
+        int[] riderIds = new int[lines.size()];
+        LocalTime[][] times = new LocalTime[lines.size()][];
+        IntIntIndex seen = new IntIntIndex(lines.size());
+        int rows = 0;
+        for (int index = 1; index < lines.size(); index++) {
+            String line = lines.get(index);
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length < 3) {
+                throw lineError(index + 1, "expected a rider ID followed by at least two times");
+            }
+            LocalTime[] riderTimes = new LocalTime[fields.length - 1];
+            try {
+                riderIds[rows] = Integer.parseInt(fields[0].trim());
+                for (int time = 0; time < riderTimes.length; time++) {
+                    riderTimes[time] = LocalTime.parse(fields[time + 1].trim());
+                }
+            } catch (NumberFormatException | DateTimeParseException exception) {
+                throw lineError(index + 1, exception.getMessage());
+            }
+            if (rows > 0 && riderTimes.length != times[0].length) {
+                throw lineError(index + 1, "unexpected number of times");
+            }
+            for (int time = 1; time < riderTimes.length; time++) {
+                if (riderTimes[time].isBefore(riderTimes[time - 1])) {
+                    throw lineError(index + 1, "times are not in chronological order");
+                }
+            }
+            if (seen.containsKey(riderIds[rows])) {
+                throw lineError(index + 1, "rider " + riderIds[rows] + " appears more than once");
+            }
+            seen.put(riderIds[rows], index);
+            times[rows++] = riderTimes;
+        }
+        return new StageBatch(stageName, Arrays.copyOf(riderIds, rows), Arrays.copyOf(times, rows));
+    }
+
+    private static IOException lineError(int lineNumber, String message) {
+        return new IOException("Line " + lineNumber + ": " + message);
+    }
+
+    private static final class StageBatch {
+        private final String stageName;
+        private final int[] riderIds;
+        private final LocalTime[][] times;
+
+        private StageBatch(String stageName, int[] riderIds, LocalTime[][] times) {
+            this.stageName = stageName;
+            this.riderIds = riderIds;
+            this.times = times;
+        }
+    }
+
+    /**
+     * Outcome of an import.
+     */
+    public static final class Report {
+        private final Map<Path, String> rejectedFiles = new LinkedHashMap<>();
+        private int importedFiles;
+        private int importedResults;
+
+        private Report() {
+        }
+
+        public int getImportedFiles() {
+            return importedFiles;
+        }
+
+        public int getImportedResults() {
+            return importedResults;
+        }
+
+        /**
+         * Rejected files, in import order, with the reason for each.
+         */
+        public Map<Path, String> getRejectedFiles() {
+            return Collections.unmodifiableMap(rejectedFiles);
+        }
+
+        private void imported(int results) {
+            importedFiles++;
+            importedResults += results;
+        }
+
+        private void rejected(Path file, String reason) {
+            rejectedFiles.put(file, reason);
+        }
+    }
+}
@@ -5,12 +5,27 @@ import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -339,6 +354,327 @@ class CyclingPortalImplTest {
                         portal.getRidersPointsInRace(raceId)));
     }
 
+    @Test
+    void updatesGeneralClassificationAsStageResultsChange() throws Exception {
+        int raceId = portal.createRace("Tour", null);
+        int firstStage = portal.addStageToRace(
+                raceId, "First", null, 20.0, LocalDateTime.now(), StageType.TT);
+        int secondStage = portal.addStageToRace(
+                raceId, "Second", null, 20.0, LocalDateTime.now(), StageType.TT);
+        portal.concludeStagePreparation(firstStage);
+        portal.concludeStagePreparation(secondStage);
+        int teamId = portal.createTeam("Velocity", null);
+        int riderOne = portal.createRider(teamId, "Rider One", 2000);
+        int riderTwo = portal.createRider(teamId, "Rider Two", 2001);
+        portal.registerRiderResultsInStage(
+                firstStage, riderOne, LocalTime.of(9, 0), LocalTime.of(10, 5));
+        portal.registerRiderResultsInStage(
+                firstStage, riderTwo, LocalTime.of(9, 0), LocalTime.of(10, 0));
+        assertArrayEquals(new int[] {riderTwo, riderOne},
+                portal.getRidersGeneralClassificationRank(raceId));
+
+        portal.registerRiderResultsInStage(
+                secondStage, riderOne, LocalTime.of(11, 0), LocalTime.of(12, 0));
+        portal.registerRiderResultsInStage(
+                secondStage, riderTwo, LocalTime.of(11, 0), LocalTime.of(12, 10));
+        assertAll(
+                () -> assertArrayEquals(new int[] {riderOne, riderTwo},
+                        portal.getRidersGeneralClassificationRank(raceId)),
+                () -> assertArrayEquals(
+                        new LocalTime[] {LocalTime.of(2, 5), LocalTime.of(2, 10)},
+                        portal.getGeneralClassificationTimesInRace(raceId)));
+
+        portal.deleteRiderResultsInStage(firstStage, riderOne);
+        assertArrayEquals(new LocalTime[] {LocalTime.of(1, 0), LocalTime.of(2, 10)},
+                portal.getGeneralClassificationTimesInRace(raceId));
+
+        portal.removeStageById(secondStage);
+        assertAll(
+                () -> assertArrayEquals(new int[] {riderTwo},
+                        portal.getRidersGeneralClassificationRank(raceId)),
+                () -> assertArrayEquals(new LocalTime[] {LocalTime.of(1, 0)},
+                        portal.getGeneralClassificationTimesInRace(raceId)));
+    }
+
+    @Test
+    void returnsAllRaceClassificationsInOneSnapshot() throws Exception {
+        int raceId = createScoredRace(40, 7L);
+
+        RaceClassifications classifications = portal.getRaceClassifications(raceId);
+
+        assertAll(
+                () -> assertEquals(raceId, classifications.getRaceID()),
+                () -> assertArrayEquals(portal.getRidersGeneralClassificationRank(raceId),
+                        classifications.getGeneralClassificationRank()),
+                () -> assertArrayEquals(portal.getGeneralClassificationTimesInRace(raceId),
+                        classifications.getGeneralClassificationTimes()),
+                () -> assertArrayEquals(portal.getRidersPointsInRace(raceId),
+                        classifications.getPoints()),
+                () -> assertArrayEquals(portal.getRidersMountainPointsInRace(raceId),
+                        classifications.getMountainPoints()),
+                () -> assertArrayEquals(portal.getRidersPointClassificationRank(raceId),
+                        classifications.getPointsClassificationRank()),
+                () -> assertArrayEquals(portal.getRidersMountainPointClassificationRank(raceId),
+                        classifications.getMountainPointsClassificationRank()));
+    }
+
+    @Test
+    void returnsLeadingRidersOfStagesAndRaces() throws Exception {
+        int raceId = createScoredRace(30, 11L);
+        int stageId = portal.getRaceStages(raceId)[0];
+
+        int[] podium = portal.getTopRidersInRace(raceId, 3);
+        int[] generalClassification = portal.getRidersGeneralClassificationRank(raceId);
+        int[] stageRank = portal.getRidersRankInStage(stageId);
+
+        assertAll(
+                () -> assertArrayEquals(Arrays.copyOf(generalClassification, 3), podium),
+                () -> assertArrayEquals(Arrays.copyOf(stageRank, 5),
+                        portal.getTopRidersInStage(stageId, 5)),
+                () -> assertArrayEquals(stageRank, portal.getTopRidersInStage(stageId, 100)),
+                () -> assertArrayEquals(new int[0], portal.getTopRidersInRace(raceId, 0)),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> portal.getTopRidersInStage(stageId, -1)));
+    }
+
+    @Test
+    void ranksLargeFieldsIdenticallyWithPackedKeys() {
+        Random random = new Random(13L);
+        int size = 5_000;
+        long[] times = new long[size];
+        int[] riderIds = new int[size];
+        for (int row = 0; row < size; row++) {
+            // Coarse times force many ties, which must fall back to rider ID.
+            times[row] = random.nextInt(200) * 1_000_000_000L;
+            riderIds[row] = size * 3 - row * 3 + random.nextInt(3);
+        }
+
+        assertArrayEquals(RankingSort.order(times, riderIds, Integer.MAX_VALUE),
+                RankingSort.order(times, riderIds, 1));
+    }
+
+    @Test
+    void concurrentPortalMatchesSequentialPortalUnderParallelLoad() throws Exception {
+        // Fewer stripes than stages, so some stages share a lock.
+        ConcurrentCyclingPortal shared = new ConcurrentCyclingPortal(3);
+        int[] sharedStages = createTimedRace(shared, 4, 150);
+        int[] sequentialStages = createTimedRace(portal, 4, 150);
+        int raceId = shared.getRaceIds()[0];
+
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int stageId : sharedStages) {
+                tasks.add(executor.submit(() -> {
+                    registerTimedResults(shared, stageId);
+                    return null;
+                }));
+            }
+            for (int reader = 0; reader < 2; reader++) {
+                tasks.add(executor.submit(() -> {
+                    for (int query = 0; query < 200; query++) {
+                        shared.getRaceClassifications(raceId);
+                        shared.getRidersRankInStage(sharedStages[query % sharedStages.length]);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (int stageId : sequentialStages) {
+            registerTimedResults(portal, stageId);
+        }
+
+        int sequentialRace = portal.getRaceIds()[0];
+        assertAll(
+                () -> assertArrayEquals(portal.getRidersGeneralClassificationRank(sequentialRace),
+                        shared.getRidersGeneralClassificationRank(raceId)),
+                () -> assertArrayEquals(portal.getRidersPointClassificationRank(sequentialRace),
+                        shared.getRidersPointClassificationRank(raceId)),
+                () -> assertArrayEquals(portal.getGeneralClassificationTimesInRace(sequentialRace),
+                        shared.getGeneralClassificationTimesInRace(raceId)));
+    }
+
+    @Test
+    void parallelEvaluationMatchesSequentialEvaluation() throws Exception {
+        CyclingPortalImpl parallel = new CyclingPortalImpl();
+        parallel.setParallelEvaluation(true);
+        int[] parallelStages = createTimedRace(parallel, 21, 120);
+        int[] sequentialStages = createTimedRace(portal, 21, 120);
+        for (int stage = 0; stage < parallelStages.length; stage++) {
+            registerTimedResults(parallel, parallelStages[stage]);
+            registerTimedResults(portal, sequentialStages[stage]);
+        }
+        int raceId = parallel.getRaceIds()[0];
+        int sequentialRace = portal.getRaceIds()[0];
+        assertEquals(120, parallel.getRaceClassifications(raceId).getPoints().length);
+
+        // Change one stage so the parallel path also has to re-merge a delta.
+        int riderId = parallel.getTeamRiders(parallel.getTeams()[0])[0];
+        parallel.deleteRiderResultsInStage(parallelStages[5], riderId);
+        portal.deleteRiderResultsInStage(sequentialStages[5], riderId);
+
+        RaceClassifications expected = portal.getRaceClassifications(sequentialRace);
+        RaceClassifications actual = parallel.getRaceClassifications(raceId);
+        assertAll(
+                () -> assertArrayEquals(expected.getGeneralClassificationRank(),
+                        actual.getGeneralClassificationRank()),
+                () -> assertArrayEquals(expected.getGeneralClassificationTimes(),
+                        actual.getGeneralClassificationTimes()),
+                () -> assertArrayEquals(expected.getPoints(), actual.getPoints()),
+                () -> assertArrayEquals(expected.getPointsClassificationRank(),
+                        actual.getPointsClassificationRank()),
+                () -> assertArrayEquals(portal.getRidersPointsInRace(sequentialRace),
+                        parallel.getRidersPointsInRace(raceId)));
+    }
+
+    @Test
+    void onboardsTeamsAndRidersInParallelWithUniqueIds(@TempDir Path temporaryDirectory)
+            throws Exception {
+        ConcurrentCyclingPortal shared = new ConcurrentCyclingPortal();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> duplicates = new ArrayList<>();
+        try {
+            List<Future<?>> jobs = new ArrayList<>();
+            for (int job = 0; job < 4; job++) {
+                int jobNumber = job;
+                jobs.add(executor.submit(() -> {
+                    int teamId = shared.createTeam("Import" + jobNumber, null);
+                    for (int rider = 0; rider < 250; rider++) {
+                        shared.createRider(teamId, "Rider " + rider, 1990);
+                    }
+                    return null;
+                }));
+                duplicates.add(executor.submit(() -> {
+                    try {
+                        return shared.createTeam("Contested", null);
+                    } catch (IllegalNameException exception) {
+                        return -1;
+                    }
+                }));
+            }
+            for (Future<?> job : jobs) {
+                job.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<Integer> riderIds = new ArrayList<>();
+        for (int teamId : shared.getTeams()) {
+            Arrays.stream(shared.getTeamRiders(teamId)).forEach(riderIds::add);
+        }
+        List<Integer> contestedTeamIds = new ArrayList<>();
+        for (Future<Integer> duplicate : duplicates) {
+            if (duplicate.get() > 0) {
+                contestedTeamIds.add(duplicate.get());
+            }
+        }
+        Path file = temporaryDirectory.resolve("onboarded.ser");
+        shared.saveCyclingPortal(file.toString());
+        portal.loadCyclingPortal(file.toString());
+        int nextRider = portal.createRider(portal.getTeamIdByName("Import0"), "Late Entry", 1990);
+
+        assertAll(
+                () -> assertEquals(1_000, riderIds.size()),
+                () -> assertEquals(1_000, riderIds.stream().distinct().count()),
+                () -> assertEquals(1, contestedTeamIds.size()),
+                () -> assertTrue(riderIds.stream().allMatch(riderId -> riderId < nextRider)));
+    }
+
+    @Test
+    void snapshotKeepsItsPointInTimeViewWhileThePortalChanges() throws Exception {
+        int raceId = createScoredRace(20, 17L);
+        int[] stageIds = portal.getRaceStages(raceId);
+        RaceClassifications before = portal.getRaceClassifications(raceId);
+        int[] stageRankBefore = portal.getRidersRankInStage(stageIds[0]);
+
+        CyclingPortal snapshot = portal.snapshot();
+        int leader = stageRankBefore[0];
+        portal.removeRider(leader);
+        portal.removeStageById(stageIds[2]);
+        int lateRider = portal.createRider(portal.getTeamIdByName("Scored"), "Late", 1990);
+        LocalTime[] copiedTimes = portal.getRiderResultsInStage(stageIds[1], stageRankBefore[1]);
+        portal.registerRiderResultsInStage(stageIds[1], lateRider,
+                Arrays.copyOf(copiedTimes, copiedTimes.length - 1));
+        RaceClassifications snapshotClassifications = snapshot.getRaceClassifications(raceId);
+
+        assertAll(
+                () -> assertArrayEquals(stageRankBefore, snapshot.getRidersRankInStage(stageIds[0])),
+                () -> assertArrayEquals(before.getGeneralClassificationRank(),
+                        snapshotClassifications.getGeneralClassificationRank()),
+                () -> assertArrayEquals(before.getPointsClassificationRank(),
+                        snapshotClassifications.getPointsClassificationRank()),
+                () -> assertEquals(3, snapshot.getNumberOfStages(raceId)),
+                () -> assertEquals(2, portal.getNumberOfStages(raceId)),
+                () -> assertEquals(20, portal.getRidersRankInStage(stageIds[1]).length),
+                () -> assertEquals(20, snapshot.getRidersRankInStage(stageIds[1]).length),
+                () -> assertThrows(UnsupportedOperationException.class,
+                        () -> snapshot.removeRaceById(raceId)),
+                () -> assertThrows(UnsupportedOperationException.class,
+                        () -> snapshot.registerRiderResultsInStage(stageIds[0], leader)));
+    }
+
+    @Test
+    void snapshotHoldsEveryRiderWhoseResultItHolds() throws Exception {
+        ConcurrentCyclingPortal shared = new ConcurrentCyclingPortal();
+        int raceId = shared.createRace("Race", null);
+        int stageId = shared.addStageToRace(raceId, "Flat", null, 100.0,
+                LocalDateTime.of(2026, 7, 1, 10, 0), StageType.FLAT);
+        shared.concludeStagePreparation(stageId);
+        int teamId = shared.createTeam("Team", null);
+
+        // Riders are timed the moment their ID resolves, while snapshots are taken.
+        int riderCount = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> signings = executor.submit(() -> {
+                for (int rider = 0; rider < riderCount; rider++) {
+                    shared.createRider(teamId, "Rider", 1999);
+                }
+                return null;
+            });
+            Future<?> timings = executor.submit(() -> {
+                for (int riderId = 1; riderId <= riderCount; riderId++) {
+                    while (true) {
+                        try {
+                            shared.registerRiderResultsInStage(stageId, riderId,
+                                    LocalTime.of(10, 0), LocalTime.of(12, 0, riderId % 60));
+                            break;
+                        } catch (IDNotRecognisedException notYetSigned) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                }
+                return null;
+            });
+            Future<?> snapshots = executor.submit(() -> {
+                while (!timings.isDone()) {
+                    CyclingPortal snapshot = shared.snapshot();
+                    for (int riderId : snapshot.getRidersRankInStage(stageId)) {
+                        snapshot.getRiderResultsInStage(stageId, riderId);
+                    }
+                }
+                return null;
+            });
+            signings.get();
+            timings.get();
+            snapshots.get();
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(riderCount, shared.getRidersRankInStage(stageId).length);
+    }
+
+    @Test
+    void concurrentPortalRequiresAtLeastOneStageLockStripe() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentCyclingPortal(0));
+    }
+
     @Test
     void validatesIdsBeforeReturningResults() {
         assertAll(
@@ -369,6 +705,539 @@ class CyclingPortalImplTest {
                 () -> assertArrayEquals(new int[] {riderId}, portal.getTeamRiders(teamId)));
     }
 
+    @Test
+    void savesBinarySnapshotsAndRejectsTruncatedOnes(@TempDir Path temporaryDirectory)
+            throws Exception {
+        int[] stageIds = createTimedRace(portal, 3, 25);
+        int climbId = portal.addStageToRace(portal.getRaceIds()[0], "Climb", "Summit finish",
+                120.0, LocalDateTime.of(2026, 7, 4, 12, 30), StageType.HIGH_MOUNTAIN);
+        portal.addCategorizedClimbToStage(climbId, 90.0, CheckpointType.HC, 8.5, 12.0);
+        for (int stageId : stageIds) {
+            registerTimedResults(portal, stageId);
+        }
+        int teamId = portal.getTeams()[0];
+        portal.removeRider(portal.getTeamRiders(teamId)[3]);
+        int raceId = portal.getRaceIds()[0];
+
+        Path binaryFile = temporaryDirectory.resolve("portal.bin");
+        portal.saveCyclingPortal(binaryFile.toString());
+
+        assertEquals(SnapshotFormat.MAGIC, ByteBuffer.wrap(Files.readAllBytes(binaryFile)).getInt());
+        CyclingPortalImpl loaded = new CyclingPortalImpl();
+        loaded.loadCyclingPortal(binaryFile.toString());
+        assertAll(
+                () -> assertEquals(portal.viewRaceDetails(raceId),
+                        loaded.viewRaceDetails(raceId)),
+                () -> assertArrayEquals(portal.getRaceStages(raceId),
+                        loaded.getRaceStages(raceId)),
+                () -> assertArrayEquals(portal.getStageCheckpoints(climbId),
+                        loaded.getStageCheckpoints(climbId)),
+                () -> assertArrayEquals(portal.getTeamRiders(teamId),
+                        loaded.getTeamRiders(teamId)),
+                () -> assertArrayEquals(portal.getRidersGeneralClassificationRank(raceId),
+                        loaded.getRidersGeneralClassificationRank(raceId)),
+                () -> assertArrayEquals(portal.getGeneralClassificationTimesInRace(raceId),
+                        loaded.getGeneralClassificationTimesInRace(raceId)),
+                () -> assertArrayEquals(portal.getRidersPointsInRace(raceId),
+                        loaded.getRidersPointsInRace(raceId)),
+                () -> assertEquals(teamId + 1, loaded.createTeam("Next", null)));
+
+        int removedRiderId = loaded.getTeamRiders(teamId)[0];
+        loaded.removeRider(removedRiderId);
+        assertTrue(Arrays.stream(loaded.getRidersGeneralClassificationRank(raceId))
+                .noneMatch(riderId -> riderId == removedRiderId));
+
+        byte[] truncated = Arrays.copyOf(Files.readAllBytes(binaryFile),
+                (int) Files.size(binaryFile) - 10);
+        Files.write(binaryFile, truncated);
+        assertThrows(IOException.class, () -> portal.loadCyclingPortal(binaryFile.toString()));
+        assertEquals(24, portal.getTeamRiders(teamId).length);
+    }
+
+    /**
+     * {@code baseline-portal.ser} was saved by the first version of the
+     * portal, which serialized every result in one list on the portal state:
+     * race 1 with a flat and a summit stage holding results and an open stage
+     * without any, teams 1 and 2 with riders 1 to 6, and rider 4 and race 2
+     * removed after use. The expected values are those that version reported.
+     */
+    @Test
+    void loadsAndConvertsPortalsSavedByTheFirstVersion(@TempDir Path temporaryDirectory)
+            throws Exception {
+        Path baselineFile = Path.of(getClass().getResource("baseline-portal.ser").toURI());
+        Path convertedFile = temporaryDirectory.resolve("converted.bin");
+        LegacySnapshotConverter.convert(baselineFile, convertedFile);
+
+        assertEquals(SnapshotFormat.MAGIC,
+                ByteBuffer.wrap(Files.readAllBytes(convertedFile)).getInt());
+        assertTrue(Files.size(convertedFile) < Files.size(baselineFile));
+        for (Path file : List.of(baselineFile, convertedFile)) {
+            assertLoadsBaselinePortal(new CyclingPortalImpl(), file);
+        }
+    }
+
+    private static void assertLoadsBaselinePortal(CyclingPortalImpl portal, Path file)
+            throws Exception {
+        portal.loadCyclingPortal(file.toString());
+
+        assertAll(
+                () -> assertArrayEquals(new int[] {1}, portal.getRaceIds()),
+                () -> assertArrayEquals(new int[] {1, 2, 3}, portal.getRaceStages(1)),
+                () -> assertArrayEquals(new int[] {1, 2, 3}, portal.getTeamRiders(1)),
+                () -> assertArrayEquals(new int[] {3, 6, 5, 1, 2},
+                        portal.getRidersGeneralClassificationRank(1)),
+                () -> assertArrayEquals(new LocalTime[] {
+                        LocalTime.of(3, 42, 10), LocalTime.of(3, 45),
+                        LocalTime.of(8, 18, 30, 300_000_000),
+                        LocalTime.of(8, 20, 0, 300_000_000),
+                        LocalTime.of(8, 22, 0, 300_000_000)},
+                        portal.getGeneralClassificationTimesInRace(1)),
+                () -> assertArrayEquals(new int[] {31, 27, 60, 82, 62},
+                        portal.getRidersPointsInRace(1)),
+                () -> assertArrayEquals(new int[] {0, 0, 20, 15, 12},
+                        portal.getRidersMountainPointsInRace(1)),
+                () -> assertArrayEquals(new int[] {1, 2, 5, 3, 6}, portal.getRidersRankInStage(1)),
+                () -> assertArrayEquals(new LocalTime[] {
+                        LocalTime.of(12, 0), LocalTime.of(13, 50, 1),
+                        LocalTime.of(15, 40, 0, 300_000_000),
+                        LocalTime.of(3, 40, 0, 300_000_000)},
+                        portal.getRiderResultsInStage(1, 1)));
+
+        portal.registerRiderResultsInStage(2, 3, LocalTime.of(11, 0), LocalTime.of(15, 25),
+                LocalTime.of(15, 50));
+        portal.removeRider(1);
+        assertAll(
+                () -> assertArrayEquals(new int[] {6, 5, 2, 3},
+                        portal.getRidersGeneralClassificationRank(1)),
+                () -> assertArrayEquals(new int[] {2, 5, 3, 6}, portal.getRidersRankInStage(1)),
+                () -> assertEquals(3, portal.createRace("Next", null)),
+                () -> assertEquals(3, portal.createTeam("Next", null)),
+                () -> assertEquals(7, portal.createRider(1, "Next", 2000)));
+    }
+
+    @Test
+    void packsResultTimesAndStillReadsVersionOneFiles(@TempDir Path temporaryDirectory)
+            throws Exception {
+        int[] stageIds = createTimedRace(portal, 2, 200);
+        int teamId = portal.getTeams()[0];
+        int[] riderIds = portal.getTeamRiders(teamId);
+        int trialId = portal.addStageToRace(portal.getRaceIds()[0], "Trial", null, 30.0,
+                LocalDateTime.of(2026, 7, 5, 13, 0), StageType.TT);
+        portal.concludeStagePreparation(trialId);
+        Path withoutResults = temporaryDirectory.resolve("entities.bin");
+        portal.saveCyclingPortal(withoutResults.toString());
+        for (int stageId : stageIds) {
+            registerTimedResults(portal, stageId);
+        }
+        for (int index = 0; index < riderIds.length; index++) {
+            LocalTime start = LocalTime.of(13, 0).plusMinutes(index);
+            portal.registerRiderResultsInStage(trialId, riderIds[index],
+                    start, start.plusSeconds(2_100 + index % 37));
+        }
+        Path file = temporaryDirectory.resolve("portal.bin");
+        portal.saveCyclingPortal(file.toString());
+
+        long unpackedTimeBytes = (2L * 3 + 2) * riderIds.length * Long.BYTES;
+        assertTrue((Files.size(file) - Files.size(withoutResults)) * 3 < unpackedTimeBytes);
+        CyclingPortalImpl loaded = new CyclingPortalImpl();
+        loaded.loadCyclingPortal(file.toString());
+        for (int stageId : new int[] {stageIds[0], stageIds[1], trialId}) {
+            assertArrayEquals(portal.getRankedAdjustedElapsedTimesInStage(stageId),
+                    loaded.getRankedAdjustedElapsedTimesInStage(stageId));
+            for (int riderId : riderIds) {
+                assertArrayEquals(portal.getRiderResultsInStage(stageId, riderId),
+                        loaded.getRiderResultsInStage(stageId, riderId));
+            }
+        }
+
+        // Version 1 stored every time as a plain long.
+        Path versionOneFile = temporaryDirectory.resolve("version1.bin");
+        writeProloguePortal(versionOneFile, 1, times -> {
+            times.putLong(LocalTime.of(14, 0).toNanoOfDay());
+            times.putLong(LocalTime.of(14, 9, 30, 250_000_000).toNanoOfDay());
+        });
+        loaded.loadCyclingPortal(versionOneFile.toString());
+        assertEquals(LocalTime.of(0, 9, 30, 250_000_000),
+                loaded.getRiderAdjustedElapsedTimeInStage(1, 1));
+    }
+
+    @Test
+    void rejectsSnapshotsWithResultTimesOutsideTheDay(@TempDir Path temporaryDirectory)
+            throws Exception {
+        Path versionOneFile = temporaryDirectory.resolve("version1.bin");
+        writeProloguePortal(versionOneFile, 1, times -> {
+            times.putLong(LocalTime.of(14, 0).toNanoOfDay());
+            times.putLong(Duration.ofDays(1).toNanos());
+        });
+        // A reference of 86,400 seconds puts the start at midnight of the next day.
+        Path versionTwoFile = temporaryDirectory.resolve("version2.bin");
+        writeProloguePortal(versionTwoFile, 2, times -> {
+            times.putByte(9);
+            times.putByte(0);
+            times.putVarLong(86_400);
+            times.putInt(3);
+            times.putVarLong(0);
+            times.putVarLong(1_200);
+        });
+        int teamId = portal.createTeam("Current", null);
+
+        for (Path file : List.of(versionOneFile, versionTwoFile)) {
+            assertThrows(IOException.class, () -> portal.loadCyclingPortal(file.toString()));
+        }
+        assertArrayEquals(new int[] {teamId}, portal.getTeams());
+    }
+
+    @Test
+    void mappedLoadChecksPackedTimesAndReportsBadValuesOnFirstUse(
+            @TempDir Path temporaryDirectory) throws Exception {
+        Path unterminated = temporaryDirectory.resolve("unterminated.bin");
+        writeProloguePortal(unterminated, 2, times -> {
+            times.putByte(9);
+            times.putByte(0);
+            times.putVarLong(50_400);
+            times.putInt(3);
+            times.putVarLong(0);
+            times.putByte(0x80);
+            times.putByte(0x80);
+        });
+        Path outsideTheDay = temporaryDirectory.resolve("outside.bin");
+        writeProloguePortal(outsideTheDay, 2, times -> {
+            times.putByte(9);
+            times.putByte(0);
+            times.putVarLong(86_400);
+            times.putInt(3);
+            times.putVarLong(0);
+            times.putVarLong(1_200);
+        });
+
+        assertThrows(IOException.class, () -> portal.loadCyclingPortalMapped(unterminated.toString()));
+        portal.loadCyclingPortalMapped(outsideTheDay.toString());
+        assertAll(
+                () -> assertArrayEquals(new int[] {1}, portal.getTeamRiders(1)),
+                () -> assertThrows(UncheckedIOException.class,
+                        () -> portal.getRiderResultsInStage(1, 1)));
+    }
+
+    @Test
+    void mappedLoadDecodesResultsOnDemandAndSurvivesOverwritingTheFile(
+            @TempDir Path temporaryDirectory) throws Exception {
+        int[] stageIds = createTimedRace(portal, 2, 40);
+        for (int stageId : stageIds) {
+            registerTimedResults(portal, stageId);
+        }
+        int raceId = portal.getRaceIds()[0];
+        Path file = temporaryDirectory.resolve("portal.bin");
+        portal.saveCyclingPortal(file.toString());
+
+        ConcurrentCyclingPortal restarted = new ConcurrentCyclingPortal();
+        restarted.loadCyclingPortalMapped(file.toString());
+        // Saving over the mapped file must not disturb the undecoded results.
+        portal.removeRider(portal.getTeamRiders(portal.getTeams()[0])[0]);
+        portal.saveCyclingPortal(file.toString());
+
+        int riderId = portal.getTeamRiders(portal.getTeams()[0])[0];
+        assertAll(
+                () -> assertEquals(40, restarted.getRidersRankInStage(stageIds[0]).length),
+                () -> assertArrayEquals(portal.getRiderResultsInStage(stageIds[1], riderId),
+                        restarted.getRiderResultsInStage(stageIds[1], riderId)));
+
+        restarted.loadCyclingPortalMapped(file.toString());
+        restarted.deleteRiderResultsInStage(stageIds[0], riderId);
+        portal.deleteRiderResultsInStage(stageIds[0], riderId);
+        assertAll(
+                () -> assertArrayEquals(portal.getRidersGeneralClassificationRank(raceId),
+                        restarted.getRidersGeneralClassificationRank(raceId)),
+                () -> assertArrayEquals(portal.getGeneralClassificationTimesInRace(raceId),
+                        restarted.getGeneralClassificationTimesInRace(raceId)));
+    }
+
+    @Test
+    void journalReplaysMutationsOnTopOfTheLatestSnapshot(@TempDir Path temporaryDirectory)
+            throws Exception {
+        String snapshot = temporaryDirectory.resolve("portal.bin").toString();
+        String journal = temporaryDirectory.resolve("portal.journal").toString();
+        ConcurrentCyclingPortal live = new ConcurrentCyclingPortal();
+        live.recoverCyclingPortal(snapshot, journal);
+        int[] stageIds = createTimedRace(live, 3, 30);
+        registerTimedResults(live, stageIds[0]);
+        live.saveCyclingPortal(snapshot);
+
+        // Parallel onboarding journals rider IDs out of order.
+        int teamId = live.createTeam("Late", null);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> signings = new ArrayList<>();
+            for (int rider = 0; rider < 40; rider++) {
+                String name = "Late " + rider;
+                signings.add(executor.submit(() -> live.createRider(teamId, name, 1999)));
+            }
+            for (Future<Integer> signing : signings) {
+                signing.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        registerTimedResults(live, stageIds[1]);
+        int[] lateRiders = live.getTeamRiders(teamId);
+        live.registerStageResultsBatch(stageIds[1], Arrays.copyOf(lateRiders, 2),
+                new LocalTime[][] {
+                    {LocalTime.of(10, 0), LocalTime.of(11, 0), LocalTime.of(12, 0)},
+                    {LocalTime.of(10, 0), LocalTime.of(11, 1), LocalTime.of(12, 1)}});
+        int firstRider = live.getTeamRiders(live.getTeams()[0])[0];
+        live.deleteRiderResultsInStage(stageIds[0], firstRider);
+        live.removeRider(live.getTeamRiders(live.getTeams()[0])[1]);
+        live.removeStageById(stageIds[2]);
+        live.syncJournal();
+        // A record torn by the crash must be ignored.
+        Files.write(Path.of(journal), new byte[] {0, 0, 0, 40, 1, 2},
+                StandardOpenOption.APPEND);
+
+        CyclingPortalImpl recovered = new CyclingPortalImpl();
+        recovered.recoverCyclingPortal(snapshot, journal);
+        int raceId = live.getRaceIds()[0];
+        assertAll(
+                () -> assertArrayEquals(live.getRaceStages(raceId),
+                        recovered.getRaceStages(raceId)),
+                () -> assertArrayEquals(live.getTeamRiders(teamId),
+                        recovered.getTeamRiders(teamId)),
+                () -> assertArrayEquals(live.getRidersGeneralClassificationRank(raceId),
+                        recovered.getRidersGeneralClassificationRank(raceId)),
+                () -> assertArrayEquals(live.getRidersPointsInRace(raceId),
+                        recovered.getRidersPointsInRace(raceId)),
+                () -> assertEquals(live.createTeam("Next", null),
+                        recovered.createTeam("Next", null)));
+
+        // The live portal still appends to the same file, so stop it first.
+        live.closeJournal();
+        // Saving to the snapshot empties the journal; later records still replay.
+        recovered.saveCyclingPortal(snapshot);
+        assertEquals(0, Files.size(Path.of(journal)));
+        recovered.removeTeam(teamId);
+        recovered.closeJournal();
+
+        portal.recoverCyclingPortal(snapshot, journal);
+        assertAll(
+                () -> assertThrows(IDNotRecognisedException.class,
+                        () -> portal.getTeamRiders(teamId)),
+                () -> assertThrows(IllegalStateException.class,
+                        () -> portal.loadCyclingPortal(snapshot)));
+        portal.closeJournal();
+    }
+
+    @Test
+    void journalsCreationsBeforeConcurrentWritesThatDependOnThem(@TempDir Path temporaryDirectory)
+            throws Exception {
+        String snapshot = temporaryDirectory.resolve("portal.bin").toString();
+        String journal = temporaryDirectory.resolve("portal.journal").toString();
+        ConcurrentCyclingPortal live = new ConcurrentCyclingPortal();
+        live.recoverCyclingPortal(snapshot, journal);
+        int raceId = live.createRace("Race", null);
+        int stageId = live.addStageToRace(raceId, "Flat", null, 100.0,
+                LocalDateTime.of(2026, 7, 1, 10, 0), StageType.FLAT);
+        live.concludeStagePreparation(stageId);
+
+        // Riders are signed to teams, and timed, as soon as they appear.
+        int teamCount = 300;
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> teams = executor.submit(() -> {
+                for (int team = 0; team < teamCount; team++) {
+                    live.createTeam("Team" + team, null);
+                }
+                return null;
+            });
+            Future<?> signings = executor.submit(() -> {
+                Set<Integer> signedTeams = new HashSet<>();
+                while (signedTeams.size() < teamCount) {
+                    for (int teamId : live.getTeams()) {
+                        if (signedTeams.add(teamId)) {
+                            live.createRider(teamId, "Rider " + teamId, 1999);
+                        }
+                    }
+                }
+                return null;
+            });
+            Future<?> timings = executor.submit(() -> {
+                Set<Integer> timedRiders = new HashSet<>();
+                while (timedRiders.size() < teamCount) {
+                    for (int teamId : live.getTeams()) {
+                        for (int riderId : live.getTeamRiders(teamId)) {
+                            if (timedRiders.add(riderId)) {
+                                live.registerRiderResultsInStage(stageId, riderId,
+                                        LocalTime.of(10, 0), LocalTime.of(12, 0, riderId % 60));
+                            }
+                        }
+                    }
+                }
+                return null;
+            });
+            teams.get();
+            signings.get();
+            timings.get();
+        } finally {
+            executor.shutdown();
+        }
+        live.closeJournal();
+
+        CyclingPortalImpl recovered = new CyclingPortalImpl();
+        recovered.recoverCyclingPortal(snapshot, journal);
+        recovered.closeJournal();
+        assertAll(
+                () -> assertArrayEquals(live.getTeams(), recovered.getTeams()),
+                () -> assertArrayEquals(live.getRidersRankInStage(stageId),
+                        recovered.getRidersRankInStage(stageId)),
+                () -> assertEquals(teamCount, recovered.getRidersRankInStage(stageId).length));
+    }
+
+    @Test
+    void mutationsLeaveThePortalUnchangedOnceTheJournalFails(@TempDir Path temporaryDirectory)
+            throws Exception {
+        Path full = Path.of("/dev/full");
+        assumeTrue(Files.isWritable(full), "needs a device that fails every write");
+        int[] stageIds = createTimedRace(portal, 2, 5);
+        registerTimedResults(portal, stageIds[0]);
+        int raceId = portal.getRaceIds()[0];
+        int teamId = portal.getTeams()[0];
+        int riderId = portal.getTeamRiders(teamId)[0];
+        String snapshot = temporaryDirectory.resolve("portal.bin").toString();
+        portal.saveCyclingPortal(snapshot);
+        portal.recoverCyclingPortal(snapshot, full.toString());
+        portal.createRace("Doomed", null);
+        assertThrows(IOException.class, portal::syncJournal);
+        int[] rankBefore = portal.getRidersGeneralClassificationRank(raceId);
+        LocalTime[] times = {LocalTime.of(10, 0), LocalTime.of(11, 0), LocalTime.of(12, 0)};
+
+        assertAll(
+                () -> assertThrows(UncheckedIOException.class,
+                        () -> portal.createRace("Lost", null)),
+                () -> assertThrows(UncheckedIOException.class,
+                        () -> portal.createTeam("Lost", null)),
+                () -> assertThrows(UncheckedIOException.class,
+                        () -> portal.createRider(teamId, "Lost", 1999)),
+                () -> assertThrows(UncheckedIOException.class,
+                        () -> portal.registerRiderResultsInStage(stageIds[1], riderId, times)),
+                () -> assertThrows(UncheckedIOException.class,
+                        () -> portal.deleteRiderResultsInStage(stageIds[0], riderId)),
+                () -> assertThrows(UncheckedIOException.class,
+                        () -> portal.removeRider(riderId)),
+                () -> assertThrows(UncheckedIOException.class,
+                        () -> portal.removeStageById(stageIds[1])),
+                () -> assertThrows(UncheckedIOException.class,
+                        () -> portal.removeRaceById(raceId)),
+                () -> assertThrows(UncheckedIOException.class, portal::eraseCyclingPortal));
+        assertAll(
+                () -> assertArrayEquals(rankBefore, portal.getRidersGeneralClassificationRank(raceId)),
+                () -> assertArrayEquals(stageIds, portal.getRaceStages(raceId)),
+                () -> assertEquals(5, portal.getTeamRiders(teamId).length),
+                () -> assertEquals(0, portal.getRiderResultsInStage(stageIds[1], riderId).length),
+                () -> assertEquals(2, portal.getRaceIds().length));
+
+        assertThrows(IOException.class, portal::closeJournal);
+        // Names claimed by the failed creations were released.
+        portal.createRace("Lost", null);
+        portal.createTeam("Lost", null);
+    }
+
+    @Test
+    void journalReplaysResultsOfStagesWithManyCheckpoints(@TempDir Path temporaryDirectory)
+            throws Exception {
+        String snapshot = temporaryDirectory.resolve("portal.bin").toString();
+        String journal = temporaryDirectory.resolve("portal.journal").toString();
+        portal.recoverCyclingPortal(snapshot, journal);
+        int raceId = portal.createRace("Race", null);
+        int stageId = portal.addStageToRace(raceId, "Long", null, 200.0,
+                LocalDateTime.of(2026, 7, 1, 8, 0), StageType.FLAT);
+        for (int sprint = 1; sprint <= 130; sprint++) {
+            portal.addIntermediateSprintToStage(stageId, sprint * 1.5);
+        }
+        portal.concludeStagePreparation(stageId);
+        int riderId = portal.createRider(portal.createTeam("Team", null), "Rider", 1999);
+        LocalTime[] times = new LocalTime[132];
+        for (int index = 0; index < times.length; index++) {
+            times[index] = LocalTime.of(8, 0).plusMinutes(index);
+        }
+        portal.registerRiderResultsInStage(stageId, riderId, times);
+        portal.closeJournal();
+
+        CyclingPortalImpl recovered = new CyclingPortalImpl();
+        recovered.recoverCyclingPortal(snapshot, journal);
+        recovered.closeJournal();
+        assertArrayEquals(portal.getRiderResultsInStage(stageId, riderId),
+                recovered.getRiderResultsInStage(stageId, riderId));
+    }
+
+    @Test
+    void deltaSnapshotsCarryOnlyChangesAndCompactIntoANewBase(@TempDir Path temporaryDirectory)
+            throws Exception {
+        String base = temporaryDirectory.resolve("portal.bin").toString();
+        String delta = temporaryDirectory.resolve("portal.delta").toString();
+        assertThrows(IllegalStateException.class, () -> portal.saveCyclingPortalDelta(delta));
+
+        int[] finishedStages = createTimedRace(portal, 3, 60);
+        for (int stageId : finishedStages) {
+            registerTimedResults(portal, stageId);
+        }
+        int finishedRace = portal.getRaceIds()[0];
+        int abandonedRace = portal.createRace("Abandoned", null);
+        int liveRace = portal.createRace("Live", null);
+        int liveStage = portal.addStageToRace(
+                liveRace, "Live", null, 80.0, LocalDateTime.now(), StageType.FLAT);
+        portal.concludeStagePreparation(liveStage);
+        portal.saveCyclingPortal(base);
+
+        int teamId = portal.getTeams()[0];
+        int[] riderIds = portal.getTeamRiders(teamId);
+        for (int index = 0; index < 5; index++) {
+            portal.registerRiderResultsInStage(liveStage, riderIds[index],
+                    LocalTime.of(10, 0), LocalTime.of(12, 0, index));
+        }
+        portal.saveCyclingPortalDelta(delta);
+        assertTrue(Files.size(Path.of(delta)) * 10 < Files.size(Path.of(base)));
+
+        // Later changes accumulate into the same delta.
+        portal.removeRaceById(abandonedRace);
+        portal.removeRider(riderIds[5]);
+        int lateTeam = portal.createTeam("Late", null);
+        portal.createRider(lateTeam, "Late Rider", 2001);
+        portal.saveCyclingPortalDelta(delta);
+
+        CyclingPortalImpl restored = new CyclingPortalImpl();
+        restored.loadCyclingPortal(base, delta);
+        assertAll(
+                () -> assertArrayEquals(portal.getRaceIds(), restored.getRaceIds()),
+                () -> assertArrayEquals(portal.getTeams(), restored.getTeams()),
+                () -> assertArrayEquals(portal.getTeamRiders(teamId),
+                        restored.getTeamRiders(teamId)),
+                () -> assertArrayEquals(portal.getRidersGeneralClassificationRank(finishedRace),
+                        restored.getRidersGeneralClassificationRank(finishedRace)),
+                () -> assertArrayEquals(portal.getRidersRankInStage(liveStage),
+                        restored.getRidersRankInStage(liveStage)),
+                () -> assertEquals(portal.createTeam("Next", null),
+                        restored.createTeam("Next", null)),
+                () -> assertThrows(IOException.class, () -> restored.loadCyclingPortal(delta)));
+
+        // A portal loaded from base and delta keeps saving against the same base.
+        restored.registerRiderResultsInStage(liveStage, riderIds[6],
+                LocalTime.of(10, 0), LocalTime.of(12, 0, 30));
+        restored.saveCyclingPortalDelta(delta);
+        portal.loadCyclingPortal(base, delta);
+        assertArrayEquals(restored.getRidersRankInStage(liveStage),
+                portal.getRidersRankInStage(liveStage));
+
+        Path staleDelta = temporaryDirectory.resolve("stale.delta");
+        Files.copy(Path.of(delta), staleDelta);
+        portal.compactCyclingPortal(base, delta);
+        CyclingPortalImpl compacted = new CyclingPortalImpl();
+        compacted.loadCyclingPortal(base);
+        assertAll(
+                () -> assertTrue(Files.notExists(Path.of(delta))),
+                () -> assertArrayEquals(restored.getTeams(), compacted.getTeams()),
+                () -> assertArrayEquals(restored.getRidersRankInStage(liveStage),
+                        compacted.getRidersRankInStage(liveStage)),
+                () -> assertThrows(IOException.class,
+                        () -> compacted.loadCyclingPortal(base, staleDelta.toString())));
+    }
+
     @Test
     void failedLoadLeavesExistingStateUnchanged(@TempDir Path temporaryDirectory)
             throws Exception {
@@ -398,6 +1267,54 @@ class CyclingPortalImplTest {
                 () -> assertEquals(20.0, portal.getStageLength(fixture.stageId)));
     }
 
+    @Test
+    void importsTimingFilesInOrderAndReportsRejectedFiles(@TempDir Path temporaryDirectory)
+            throws Exception {
+        int[] stageIds = createTimedRace(portal, 3, 30);
+        CyclingPortalImpl reference = new CyclingPortalImpl();
+        int[] referenceStages = createTimedRace(reference, 3, 30);
+        List<Path> files = new ArrayList<>();
+        for (int stage = 0; stage < stageIds.length; stage++) {
+            registerTimedResults(reference, referenceStages[stage]);
+            StringBuilder contents = new StringBuilder("stage,Timed" + stage + "\n");
+            for (int riderId : reference.getTeamRiders(reference.getTeams()[0])) {
+                LocalTime[] recorded = reference.getRiderResultsInStage(referenceStages[stage], riderId);
+                contents.append(riderId);
+                for (int time = 0; time < recorded.length - 1; time++) {
+                    contents.append(',').append(recorded[time]);
+                }
+                contents.append('\n');
+            }
+            files.add(Files.writeString(temporaryDirectory.resolve("stage" + stage + ".csv"),
+                    contents));
+        }
+        Path repeated = files.get(0);
+        Path malformed = Files.writeString(temporaryDirectory.resolve("bad.csv"),
+                "stage,Timed1\n1,10:00,soon,11:00\n");
+        Path fieldless = Files.writeString(temporaryDirectory.resolve("empty.csv"),
+                "stage,Timed2\n,\n");
+        Path unknownStage = Files.writeString(temporaryDirectory.resolve("unknown.csv"),
+                "stage,Nowhere\n1,10:00,10:30,11:00\n");
+        files.add(1, malformed);
+        files.add(2, fieldless);
+        files.add(repeated);
+        files.add(unknownStage);
+
+        TimingImportPipeline.Report report =
+                new TimingImportPipeline(portal, 3, 2).importFiles(files);
+
+        assertAll(
+                () -> assertEquals(3, report.getImportedFiles()),
+                () -> assertEquals(90, report.getImportedResults()),
+                () -> assertEquals(List.of(malformed, fieldless, repeated, unknownStage),
+                        List.copyOf(report.getRejectedFiles().keySet())),
+                () -> assertEquals("Line 2: expected a rider ID followed by at least two times",
+                        report.getRejectedFiles().get(fieldless)),
+                () -> assertArrayEquals(
+                        reference.getRidersGeneralClassificationRank(reference.getRaceIds()[0]),
+                        portal.getRidersGeneralClassificationRank(portal.getRaceIds()[0])));
+    }
+
     @Test
     void removingRiderCascadesRegisteredResults() throws Exception {
         StageFixture fixture = createRoadStageWithRider();
@@ -416,6 +1333,120 @@ class CyclingPortalImplTest {
                                 fixture.stageId, fixture.riderId)));
     }
 
+    @Test
+    void resolvesIdsAfterManyCreationsAndRemovals() throws Exception {
+        int[] teamIds = new int[200];
+        for (int index = 0; index < teamIds.length; index++) {
+            teamIds[index] = portal.createTeam("Team" + index, null);
+        }
+        for (int index = 0; index < teamIds.length; index += 2) {
+            portal.removeTeam(teamIds[index]);
+        }
+
+        for (int index = 0; index < teamIds.length; index++) {
+            int teamId = teamIds[index];
+            if (index % 2 == 0) {
+                assertThrows(IDNotRecognisedException.class, () -> portal.getTeamRiders(teamId));
+            } else {
+                assertArrayEquals(new int[0], portal.getTeamRiders(teamId));
+            }
+        }
+        assertEquals(100, portal.getTeams().length);
+    }
+
+    @Test
+    void cascadesRaceAndTeamRemovalAcrossRelatedResults() throws Exception {
+        StageFixture fixture = createRoadStageWithRider();
+        int otherRace = portal.createRace("Giro", null);
+        int otherStage = portal.addStageToRace(
+                otherRace, "Prologue", null, 8.0, LocalDateTime.now(), StageType.TT);
+        int otherRider = portal.createRider(fixture.teamId, "Rider Two", 2001);
+        for (int stageId : new int[] {fixture.stageId, otherStage}) {
+            portal.concludeStagePreparation(stageId);
+            portal.registerRiderResultsInStage(
+                    stageId, fixture.riderId, LocalTime.of(9, 0), LocalTime.of(10, 0));
+            portal.registerRiderResultsInStage(
+                    stageId, otherRider, LocalTime.of(9, 0), LocalTime.of(10, 1));
+        }
+
+        portal.removeRaceById(fixture.raceId);
+        assertArrayEquals(new int[] {fixture.riderId, otherRider},
+                portal.getRidersRankInStage(otherStage));
+
+        portal.removeTeam(fixture.teamId);
+        assertAll(
+                () -> assertArrayEquals(new int[0], portal.getRidersRankInStage(otherStage)),
+                () -> assertArrayEquals(new int[0], portal.getRidersGeneralClassificationRank(otherRace)),
+                () -> assertThrows(IDNotRecognisedException.class,
+                        () -> portal.removeRider(otherRider)));
+    }
+
+    @Test
+    void registersStageResultsBatchAtomically() throws Exception {
+        int stageId = createTimedRace(portal, 1, 40)[0];
+        registerTimedResults(portal, stageId);
+        CyclingPortalImpl batched = new CyclingPortalImpl();
+        int batchedStage = createTimedRace(batched, 1, 40)[0];
+
+        int[] riderIds = portal.getTeamRiders(portal.getTeams()[0]);
+        LocalTime[][] times = new LocalTime[riderIds.length][];
+        for (int row = 0; row < riderIds.length; row++) {
+            LocalTime[] recorded = portal.getRiderResultsInStage(stageId, riderIds[row]);
+            times[row] = Arrays.copyOf(recorded, recorded.length - 1);
+        }
+        int[] withRepeat = Arrays.copyOf(riderIds, riderIds.length + 1);
+        withRepeat[riderIds.length] = riderIds[0];
+        LocalTime[][] repeatTimes = Arrays.copyOf(times, withRepeat.length);
+        repeatTimes[riderIds.length] = times[0];
+        int[] withUnknown = riderIds.clone();
+        withUnknown[riderIds.length - 1] = 999;
+
+        assertAll(
+                () -> assertThrows(DuplicatedResultException.class,
+                        () -> batched.registerStageResultsBatch(
+                                batchedStage, withRepeat, repeatTimes)),
+                () -> assertThrows(IDNotRecognisedException.class,
+                        () -> batched.registerStageResultsBatch(batchedStage, withUnknown, times)),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> batched.registerStageResultsBatch(batchedStage, riderIds,
+                                new LocalTime[1][])));
+        assertArrayEquals(new int[0], batched.getRidersRankInStage(batchedStage));
+
+        batched.registerStageResultsBatch(batchedStage, riderIds, times);
+        assertAll(
+                () -> assertArrayEquals(portal.getRidersRankInStage(stageId),
+                        batched.getRidersRankInStage(batchedStage)),
+                () -> assertArrayEquals(portal.getRankedAdjustedElapsedTimesInStage(stageId),
+                        batched.getRankedAdjustedElapsedTimesInStage(batchedStage)),
+                () -> assertArrayEquals(portal.getRidersPointsInStage(stageId),
+                        batched.getRidersPointsInStage(batchedStage)),
+                () -> assertThrows(DuplicatedResultException.class,
+                        () -> batched.registerStageResultsBatch(batchedStage,
+                                new int[] {riderIds[0]}, new LocalTime[][] {times[0]})));
+    }
+
+    @Test
+    void refreshesStageRankingAfterEveryResultMutation() throws Exception {
+        StageFixture fixture = createRoadStageWithRider();
+        int fasterRider = portal.createRider(fixture.teamId, "Rider Two", 2001);
+        portal.concludeStagePreparation(fixture.stageId);
+        portal.registerRiderResultsInStage(
+                fixture.stageId, fixture.riderId, LocalTime.of(9, 0), LocalTime.of(10, 0));
+        assertArrayEquals(new int[] {fixture.riderId},
+                portal.getRidersRankInStage(fixture.stageId));
+
+        portal.registerRiderResultsInStage(
+                fixture.stageId, fasterRider, LocalTime.of(9, 0), LocalTime.of(9, 50));
+        assertArrayEquals(new int[] {fasterRider, fixture.riderId},
+                portal.getRidersRankInStage(fixture.stageId));
+
+        portal.deleteRiderResultsInStage(fixture.stageId, fixture.riderId);
+        assertArrayEquals(new int[] {fasterRider}, portal.getRidersRankInStage(fixture.stageId));
+
+        portal.removeRider(fasterRider);
+        assertArrayEquals(new int[0], portal.getRidersRankInStage(fixture.stageId));
+    }
+
     @Test
     void removingRaceByNameUsesStringValueEquality() throws Exception {
         portal.createRace(new String("Tour"), null);
@@ -423,6 +1454,172 @@ class CyclingPortalImplTest {
         assertArrayEquals(new int[0], portal.getRaceIds());
     }
 
+    @Test
+    void looksUpIdsByNameAndReleasesNamesOnRemoval() throws Exception {
+        StageFixture fixture = createRoadStageWithRider();
+
+        assertAll(
+                () -> assertEquals(fixture.raceId, portal.getRaceIdByName("Tour")),
+                () -> assertEquals(fixture.stageId, portal.getStageIdByName("Road")),
+                () -> assertEquals(fixture.teamId, portal.getTeamIdByName("Velocity")),
+                () -> assertThrows(NameNotRecognisedException.class,
+                        () -> portal.getRaceIdByName("Giro")));
+
+        portal.removeRaceByName("Tour");
+        portal.removeTeam(fixture.teamId);
+
+        assertAll(
+                () -> assertThrows(NameNotRecognisedException.class,
+                        () -> portal.getStageIdByName("Road")),
+                () -> assertThrows(NameNotRecognisedException.class,
+                        () -> portal.removeRaceByName("Tour")));
+        int recreatedRace = portal.createRace("Tour", null);
+        portal.addStageToRace(recreatedRace, "Road", null, 20.0, LocalDateTime.now(), StageType.FLAT);
+        portal.createTeam("Velocity", null);
+    }
+
+    /**
+     * Builds a three-stage race with sprints, climbs and a time trial, and
+     * registers pseudo-random results with frequent sub-second gaps.
+     */
+    private int createScoredRace(int riderCount, long seed) throws Exception {
+        Random random = new Random(seed);
+        int raceId = portal.createRace("Scored", null);
+        int flat = portal.addStageToRace(
+                raceId, "Flat", null, 180.0, LocalDateTime.now(), StageType.FLAT);
+        portal.addIntermediateSprintToStage(flat, 60.0);
+        portal.addCategorizedClimbToStage(flat, 120.0, CheckpointType.HC, 8.0, 12.0);
+        int mountain = portal.addStageToRace(
+                raceId, "Mountain", null, 150.0, LocalDateTime.now(), StageType.MEDIUM_MOUNTAIN);
+        portal.addCategorizedClimbToStage(mountain, 50.0, CheckpointType.C1, 6.0, 9.0);
+        portal.addCategorizedClimbToStage(mountain, 90.0, CheckpointType.C3, 5.0, 4.0);
+        portal.addIntermediateSprintToStage(mountain, 110.0);
+        int timeTrial = portal.addStageToRace(
+                raceId, "Chrono", null, 30.0, LocalDateTime.now(), StageType.TT);
+        int[] stageIds = {flat, mountain, timeTrial};
+        for (int stageId : stageIds) {
+            portal.concludeStagePreparation(stageId);
+        }
+
+        int teamId = portal.createTeam("Scored", null);
+        for (int index = 0; index < riderCount; index++) {
+            int riderId = portal.createRider(teamId, "Rider " + index, 1990);
+            for (int stageId : stageIds) {
+                int checkpoints = portal.getStageCheckpoints(stageId).length;
+                LocalTime[] times = new LocalTime[checkpoints + 2];
+                times[0] = LocalTime.of(9, 0);
+                for (int time = 1; time < times.length; time++) {
+                    times[time] = times[time - 1].plusNanos(
+                            (1_200L + random.nextInt(400)) * 1_000_000_000L
+                                    + random.nextInt(1_500) * 1_000_000L);
+                }
+                portal.registerRiderResultsInStage(stageId, riderId, times);
+            }
+        }
+        return raceId;
+    }
+
+    /**
+     * Writes a snapshot section holding one entry.
+     */
+    /**
+     * Writes a snapshot of one team, rider, race and time-trial stage, with
+     * the rider's start and finish written by {@code times} in the result
+     * encoding of {@code version}.
+     */
+    private static void writeProloguePortal(Path file, int version, Consumer<BinaryWriter> times)
+            throws IOException {
+        BinaryWriter out = new BinaryWriter(256);
+        out.putInt(SnapshotFormat.MAGIC);
+        out.putShort((short) version);
+        for (int nextId : new int[] {2, 2, 1, 2, 2}) {
+            out.putInt(nextId);
+        }
+        putSection(out, 1, team -> {
+            team.putInt(1);
+            team.putString("Archive");
+            team.putString(null);
+        });
+        putSection(out, 2, rider -> {
+            rider.putInt(1);
+            rider.putInt(1);
+            rider.putString("Old Rider");
+            rider.putInt(1990);
+        });
+        putSection(out, 3, race -> {
+            race.putInt(1);
+            race.putString("Archive");
+            race.putString(null);
+        });
+        putSection(out, 4, stage -> {
+            stage.putInt(1);
+            stage.putInt(1);
+            stage.putString("Prologue");
+            stage.putString(null);
+            stage.putDouble(8.0);
+            stage.putDateTime(LocalDateTime.of(2020, 7, 1, 14, 0));
+            stage.putByte(StageType.TT.ordinal());
+            stage.putByte(1);
+        });
+        putSection(out, 6, results -> {
+            results.putInt(1);
+            results.putInt(1);
+            results.putInt(2);
+            if (version == 1) {
+                results.putInt(1);
+            } else {
+                // Rider IDs are zig-zag deltas from the previous row.
+                results.putVarLong(2);
+            }
+            times.accept(results);
+        });
+        ByteBuffer written = out.written();
+        Files.write(file, Arrays.copyOf(written.array(), written.limit()));
+    }
+
+    private static void putSection(BinaryWriter out, int tag, Consumer<BinaryWriter> entry) {
+        int start = out.position();
+        out.putByte(tag);
+        out.putInt(0);
+        out.putInt(1);
+        entry.accept(out);
+        out.putInt(start + 1, out.position() - start - 1 - Integer.BYTES);
+    }
+
+    private static int[] createTimedRace(CyclingPortal target, int stageCount, int riderCount)
+            throws Exception {
+        int raceId = target.createRace("Timed", null);
+        int[] stageIds = new int[stageCount];
+        for (int stage = 0; stage < stageCount; stage++) {
+            stageIds[stage] = target.addStageToRace(raceId, "Timed" + stage, null, 80.0,
+                    LocalDateTime.now(), StageType.FLAT);
+            target.addIntermediateSprintToStage(stageIds[stage], 40.0);
+            target.concludeStagePreparation(stageIds[stage]);
+        }
+        int teamId = target.createTeam("Timed", null);
+        for (int rider = 0; rider < riderCount; rider++) {
+            target.createRider(teamId, "Rider " + rider, 1995);
+        }
+        return stageIds;
+    }
+
+    /**
+     * Registers a result for every rider, with times derived only from the
+     * stage and rider IDs so that separate portals receive identical data.
+     */
+    private static void registerTimedResults(CyclingPortal target, int stageId)
+            throws Exception {
+        int teamId = target.getTeams()[0];
+        for (int riderId : target.getTeamRiders(teamId)) {
+            long seed = stageId * 7_919L + riderId * 104_729L;
+            LocalTime start = LocalTime.of(10, 0);
+            LocalTime sprint = start.plusSeconds(3_000 + seed % 600);
+            LocalTime finish = sprint.plusSeconds(3_000 + seed % 571)
+                    .plusNanos(seed % 997 * 1_000_000L);
+            target.registerRiderResultsInStage(stageId, riderId, start, sprint, finish);
+        }
+    }
+
     private StageFixture createRoadStageWithRider() throws Exception {
         int raceId = portal.createRace("Tour", null);
         int stageId = portal.addStageToRace(
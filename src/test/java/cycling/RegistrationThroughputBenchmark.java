@@ -0,0 +1,86 @@
+package cycling;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures result-registration throughput of {@link ConcurrentCyclingPortal}
+ * as the number of timing-feed threads grows.
+ *
+ * <p>Each thread feeds its own stage, as concurrent races do on race day. The
+ * run is repeated with one stage lock stripe, which serialises registration
+ * like a single portal-wide lock, and with the default striping. It is not a
+ * unit test and is not run by Maven; start it with</p>
+ *
+ * <pre>
+ * mvn -q test-compile
+ * java -cp target/classes:target/test-classes cycling.RegistrationThroughputBenchmark
+ * </pre>
+ */
+public final class RegistrationThroughputBenchmark {
+    private static final int RIDERS = 4_000;
+    private static final int ROUNDS = 5;
+
+    private RegistrationThroughputBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int maximumThreads = Math.max(8, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-8s %-8s %16s%n", "stripes", "threads", "registrations/s");
+        for (int stripes : new int[] {1, ConcurrentCyclingPortal.DEFAULT_STAGE_LOCK_STRIPES}) {
+            for (int threads = 1; threads <= maximumThreads; threads *= 2) {
+                measure(stripes, threads);
+                double best = 0.0;
+                for (int round = 0; round < ROUNDS; round++) {
+                    best = Math.max(best, measure(stripes, threads));
+                }
+                System.out.printf("%-8d %-8d %,16.0f%n", stripes, threads, best);
+            }
+        }
+    }
+
+    private static double measure(int stripes, int threads) throws Exception {
+        ConcurrentCyclingPortal portal = new ConcurrentCyclingPortal(stripes);
+        int teamId = portal.createTeam("Bench", null);
+        int[] riderIds = new int[RIDERS];
+        for (int rider = 0; rider < RIDERS; rider++) {
+            riderIds[rider] = portal.createRider(teamId, "Rider " + rider, 1995);
+        }
+        int[] stageIds = new int[threads];
+        for (int thread = 0; thread < threads; thread++) {
+            int raceId = portal.createRace("Race" + thread, null);
+            stageIds[thread] = portal.addStageToRace(raceId, "Stage" + thread, null, 150.0,
+                    LocalDateTime.now(), StageType.FLAT);
+            portal.addIntermediateSprintToStage(stageIds[thread], 75.0);
+            portal.concludeStagePreparation(stageIds[thread]);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> feeds = new ArrayList<>();
+            long started = System.nanoTime();
+            for (int stageId : stageIds) {
+                feeds.add(executor.submit(() -> {
+                    LocalTime start = LocalTime.of(11, 0);
+                    for (int rider = 0; rider < RIDERS; rider++) {
+                        portal.registerRiderResultsInStage(stageId, riderIds[rider], start,
+                                start.plusSeconds(7_000 + rider), start.plusSeconds(14_000 + rider));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> feed : feeds) {
+                feed.get();
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+            return (double) RIDERS * threads / seconds;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}